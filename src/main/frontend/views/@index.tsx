@@ -1,9 +1,14 @@
 
-import {useEffect, useState} from "react";
+import {useCallback, useEffect, useRef, useState} from "react";
 import {nanoid} from "nanoid";
 import {AssistantUIService, HotelBookingUIService} from 'Frontend/generated/endpoints.js';
 import {GridColumn} from "@vaadin/react-components/GridColumn";
-import {Grid} from "@vaadin/react-components/Grid";
+import {
+    Grid,
+    GridDataProviderCallback,
+    GridDataProviderParams,
+    GridElement
+} from "@vaadin/react-components/Grid";
 import {SplitLayout} from "@vaadin/react-components/SplitLayout";
 import HotelBookingDetails from "../generated/rs/siriusxi/hbca/ui/dto/HotelBookingDetail";
 import {MessageItem} from "../components/Message";
@@ -19,7 +24,7 @@ import {MessageInput} from "@vaadin/react-components";
  * - A support chat interface enabling real-time interaction with an assistant.
  *
  * Features:
- * - Fetches and displays hotel booking details from a data source.
+ * - Fetches and displays hotel booking details lazily, one keyset page at a time as the grid scrolls.
  * - Allows users to interact with an assistant through a message-based chat interface.
  * - Automatically appends incoming chat messages and updates the latest assistant response.
  * - Indicates the working state of the interface while processing user input.
@@ -28,18 +33,40 @@ import {MessageInput} from "@vaadin/react-components";
  */
 export default function Index() {
     const [working, setWorking] = useState(false);
-    const [bookings, setBookings] = useState<HotelBookingDetails[]>([]);
+    const grid = useRef<GridElement<HotelBookingDetails>>(null);
+    // Keyset cursor before each page read so far; the first page starts from the beginning.
+    const cursors = useRef<(string | undefined)[]>([undefined]);
     const [chatId] = useState(nanoid());
     const [messages, setMessages] = useState<MessageItem[]>([{
         role: 'assistant',
         content: 'Welcome to Great Hotel Booking ! How can I help you?'
     }]);
+    const bookingsProvider = useCallback(async (params: GridDataProviderParams<HotelBookingDetails>,
+                                                callback: GridDataProviderCallback<HotelBookingDetails>) => {
+        // Keyset pages can only be reached in order, so read forward from the last known cursor.
+        let index = Math.min(params.page, cursors.current.length - 1);
+        while (true) {
+            const page = await HotelBookingUIService.getBookings(cursors.current[index], params.pageSize);
+            const items = (page?.items ?? []).filter((item): item is HotelBookingDetails => !!item);
+            if (!page?.nextCursor) {
+                cursors.current.length = index + 1;
+                callback(index === params.page ? items : [], index * params.pageSize + items.length);
+                return;
+            }
+            cursors.current[index + 1] = page.nextCursor;
+            if (index === params.page) {
+                // The total is unknown until the last page; keep one more page in reach.
+                callback(items, (index + 2) * params.pageSize);
+                return;
+            }
+            index++;
+        }
+    }, []);
     useEffect(() => {
-        // Update bookings when we have received the full response
+        // Re-read the bookings when the assistant has finished a turn, it may have changed some
         if (!working) {
-            HotelBookingUIService.getBookings().then(result =>
-                setBookings(result?.filter((b):
-                b is HotelBookingDetails => b !== undefined) ?? []));
+            cursors.current = [undefined];
+            grid.current?.clearCache();
         }
     }, [working]);
 
@@ -74,7 +101,14 @@ export default function Index() {
                     appendToLatestMessage(token);
                 }
             })
-            .onError(() => setWorking(false))
+            .onError(error => {
+                // Rejected turns (rate limit, busy conversation or overload) explain themselves.
+                addMessage({
+                    role: 'assistant',
+                    content: error || 'Something went wrong, please try again.'
+                });
+                setWorking(false);
+            })
             .onComplete(() => setWorking(false));
     }
 
@@ -83,7 +117,7 @@ export default function Index() {
 
             <div className="flex flex-col gap-m p-m box-border" style={{width: '70%'}}>
                 <h3>Hotel Bookings Database</h3>
-                <Grid items={bookings} className="flex-shrink-0">
+                <Grid ref={grid} dataProvider={bookingsProvider} className="flex-shrink-0">
                     <GridColumn path="bookingNumber" autoWidth header="#"/>
                     <GridColumn path="firstName" autoWidth header="First Name"/>
                     <GridColumn path="lastName" autoWidth header="Last Name"/>
@@ -0,0 +1,65 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Admission control of chat turns, bound from {@code hbca.ai.admission.*}.
+ *
+ * @param enabled     admit every turn immediately when false
+ * @param concurrency adaptive limit of turns streaming at the same time
+ * @param conversation turns of one conversation
+ * @param rate        token buckets, per conversation and shared by all conversations
+ * @param expireAfter idle time after which a conversation's bucket is dropped
+ * @param maximumConversations conversations whose bucket is kept, the least recently used
+ *                    are dropped beyond it; also the number of conversations that may have
+ *                    turns running or queued at once
+ */
+@ConfigurationProperties("hbca.ai.admission")
+public record AdmissionProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue Concurrency concurrency,
+                                  @DefaultValue Conversation conversation,
+                                  @DefaultValue Rate rate,
+                                  @DefaultValue("30m") Duration expireAfter,
+                                  @DefaultValue("10000") long maximumConversations) {
+
+    /**
+     * AIMD limit: grows by one per window of turns answered within {@code targetLatency},
+     * shrinks by {@code backoffRatio} when the first token takes longer or the model fails.
+     *
+     * @param initialLimit  limit at startup
+     * @param minLimit      the limit never drops below this
+     * @param maxLimit      the limit never grows above this; keep it within the JDBC pool and
+     *                      the model's rate limits
+     * @param targetLatency time to first token considered healthy
+     * @param backoffRatio  multiplier applied to the limit on a slow or failed turn
+     */
+    public record Concurrency(@DefaultValue("32") int initialLimit,
+                              @DefaultValue("4") int minLimit,
+                              @DefaultValue("256") int maxLimit,
+                              @DefaultValue("3s") Duration targetLatency,
+                              @DefaultValue("0.9") double backoffRatio) {
+    }
+
+    /**
+     * @param maxQueued    turns waiting behind the one in flight; more are rejected
+     * @param queueTimeout how long a queued turn may wait for its predecessor
+     */
+    public record Conversation(@DefaultValue("2") int maxQueued,
+                               @DefaultValue("60s") Duration queueTimeout) {
+    }
+
+    /**
+     * @param conversationPerSecond turns per second a conversation sustains
+     * @param conversationBurst     turns a conversation may send at once
+     * @param globalPerSecond       turns per second admitted across all conversations
+     * @param globalBurst           turns admitted at once across all conversations
+     */
+    public record Rate(@DefaultValue("0.5") double conversationPerSecond,
+                       @DefaultValue("5") int conversationBurst,
+                       @DefaultValue("50") double globalPerSecond,
+                       @DefaultValue("100") int globalBurst) {
+    }
+}
@@ -1,20 +1,54 @@
 package rs.siriusxi.hbca.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.PromptChatMemoryAdvisor;
-import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
-import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.scheduler.Scheduler;
+import rs.siriusxi.hbca.service.ai.BlockingCallMonitor;
+import rs.siriusxi.hbca.service.ai.ToolInvocationTracker;
+import rs.siriusxi.hbca.service.ai.cache.CachingEmbeddingModel;
+import rs.siriusxi.hbca.service.ai.cache.EmbeddingCache;
+import rs.siriusxi.hbca.service.ai.cache.SemanticResponseCacheAdvisor;
+import rs.siriusxi.hbca.service.ai.memory.ChatMemoryRetention;
+import rs.siriusxi.hbca.service.ai.memory.ChatMessageStore;
+import rs.siriusxi.hbca.service.ai.memory.ChatSummaryStore;
+import rs.siriusxi.hbca.service.ai.memory.MessageCodec;
+import rs.siriusxi.hbca.service.ai.memory.MonitoredChatMemory;
+import rs.siriusxi.hbca.service.ai.memory.SummarizingChatMemory;
+import rs.siriusxi.hbca.service.ai.memory.WriteBehindChatMemoryRepository;
+import rs.siriusxi.hbca.service.ai.observation.ChatStageAdvisor;
+import rs.siriusxi.hbca.service.ai.observation.ChatStageObserver;
+import rs.siriusxi.hbca.service.ai.observation.InteractionLoggingAdvisor;
+import rs.siriusxi.hbca.service.ai.observation.ObservedEmbeddingModel;
+import rs.siriusxi.hbca.service.ai.observation.ObservedVectorStore;
+import rs.siriusxi.hbca.service.ai.rag.AdaptiveRetrievalAdvisor;
+import rs.siriusxi.hbca.service.ai.rag.EmbeddingPipeline;
+import rs.siriusxi.hbca.service.ai.rag.HnswVectorStore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import static rs.siriusxi.hbca.config.BookingToolsConfig.aiToolsNames;
 
@@ -28,14 +62,36 @@ import static rs.siriusxi.hbca.config.BookingToolsConfig.aiToolsNames;
  * <p>
  * Beans Defined:
  * <p>
- * - {@link SimpleVectorStore}:
- *   Configures a vector storage system using an embedding model for
- *   managing vectorized data used in AI-related applications.
+ * - {@link HnswVectorStore}:
+ *   Configures an in-process approximate-nearest-neighbour vector store using an
+ *   embedding model, tuned through {@link VectorIndexProperties}.
+ * <p>
+ * - {@link EmbeddingCache}:
+ *   Caches embeddings of normalized user questions so repeated questions skip
+ *   the embedding round trip during retrieval.
+ * <p>
+ * - {@link EmbeddingPipeline}:
+ *   Embeds new knowledge chunks in token-budgeted, concurrent batches with retry
+ *   and checkpointing during document ingestion.
+ * <p>
+ * - {@link WriteBehindChatMemoryRepository}:
+ *   Serves active conversations from memory and persists them to the database in
+ *   background batches; disabled with {@code hbca.ai.memory.write-behind=false}.
+ *   With {@code hbca.ai.memory.compression.enabled} its message bodies are stored
+ *   deflated by the {@link MessageCodec}; once compressed rows exist, write-behind can
+ *   no longer be turned off, since Spring AI's JDBC repository cannot read them.
+ * <p>
+ * - {@link ChatMemoryRetention}:
+ *   Scheduled job removing, or archiving, conversations idle past their time to live in
+ *   small batches; disabled with {@code hbca.ai.memory.retention.enabled=false}.
  * <p>
  * - {@link ChatMemory}:
  *   Defines a chat memory instance for storing and providing context to
  *   conversational agents. The memory limits the context to the last
- *   100 messages, aiding large language models in generating context-aware responses.
+ *   100 messages (configurable through {@link ChatMemoryProperties}), aiding large
+ *   language models in generating context-aware responses. In {@code summarizing}
+ *   mode a {@link SummarizingChatMemory} bounds the context by tokens instead and
+ *   folds older turns into a rolling summary.
  * <p>
  * - {@link ChatClient}:
  *   Creates a chat client configured with a default system prompt, a set of
@@ -45,22 +101,33 @@ import static rs.siriusxi.hbca.config.BookingToolsConfig.aiToolsNames;
  * Dependencies:
  * <p>
  * - {@link EmbeddingModel}: Provides embedding model logic for vector generation
- *   in {@link SimpleVectorStore}.
+ *   in {@link HnswVectorStore}.
  * <p>
  * - {@link JdbcChatMemoryRepository}: Underpins the chat memory system, storing chat messages
- *   and retrieving stored history to provide a coherent conversation context.
+ *   and retrieving stored history to provide a coherent conversation context. Used directly
+ *   when write-behind is disabled. Like the other chat memory stores it runs on the chat memory
+ *   pool of {@link ChatMemoryDataSourceConfig}.
  * <p>
  * - {@link ChatClient.Builder}: Assists in building an instance of {@link ChatClient}
  *   with configurable properties such as system prompts, advisors, and tools.
  * <p>
  * Advisors Added to the Chat Client:
  * <p>
- * - {@link SimpleLoggerAdvisor}: Logs chat interactions for debugging and monitoring purposes.
+ * - {@link ChatStageAdvisor}: First and last in the chain; time prompt assembly and time to
+ *   first token. Memory, retrieval and tools report their own stages to the {@link ChatStageObserver}.
+ * <p>
+ * - {@link InteractionLoggingAdvisor}: Logs a sampled, size-capped and redacted record of chat
+ *   interactions for debugging and monitoring purposes, without blocking the stream.
  * <p>
  * - {@link PromptChatMemoryAdvisor}: Leverages ChatMemory to provide historical context to the conversation.
  * <p>
- * - {@link QuestionAnswerAdvisor}: Aims to process user queries by utilizing vector-based storage
- *   and executing search requests.
+ * - {@link AdaptiveRetrievalAdvisor}: Adds relevant booking terms from the vector store to the
+ *   user message; skips the search for booking lookups and small talk, sizes top-k to the question
+ *   and leaves out chunks already in the conversation.
+ * <p>
+ * - {@link SemanticResponseCacheAdvisor}: Optional, enabled with {@code hbca.ai.response-cache.enabled};
+ *   replays cached answers to semantically equivalent first questions of a conversation that needed
+ *   no booking tools.
  * <p>
  * Configuration Notes:
  * <p>
@@ -70,42 +137,166 @@ import static rs.siriusxi.hbca.config.BookingToolsConfig.aiToolsNames;
  *   {@link BookingToolsConfig}.
  */
 @Configuration
+@EnableScheduling
+@EnableConfigurationProperties({VectorIndexProperties.class, IngestionProperties.class,
+        EmbeddingCacheProperties.class, ResponseCacheProperties.class, ChatMemoryProperties.class,
+        BulkOperationProperties.class, BookingMutationProperties.class, InteractionLogProperties.class,
+        RetrievalProperties.class, AdmissionProperties.class,
+        StreamCoalescingProperties.class})
 public class AppConfig {
 
     @Value("classpath:SystemMessage.st")
     private Resource systemPrompt;
 
+    @Value("classpath:ConversationSummary.st")
+    private Resource conversationSummaryPrompt;
+
+    @Value("classpath:RetrievalContext.st")
+    private Resource retrievalContextPrompt;
+
     @Bean
-    SimpleVectorStore vectorStore(EmbeddingModel embeddingModel) {
-        return SimpleVectorStore.builder(embeddingModel).build();
+    EmbeddingCache queryEmbeddingCache(EmbeddingCacheProperties cacheProperties, MeterRegistry meterRegistry) {
+        return new EmbeddingCache(cacheProperties, meterRegistry);
     }
 
     @Bean
-    ChatMemory chatMemory(JdbcChatMemoryRepository jdbcChatMemoryRepository) {
-        return MessageWindowChatMemory.builder()
-                .chatMemoryRepository(jdbcChatMemoryRepository)
-                /*
-                "maxMessages" parameter tells the chat memory to send LLM the last 100 messages as context.
-                */
-                .maxMessages(100)
+    HnswVectorStore vectorStore(EmbeddingModel embeddingModel, VectorIndexProperties indexProperties,
+                                EmbeddingCacheProperties cacheProperties, EmbeddingCache queryEmbeddingCache,
+                                ChatStageObserver chatStageObserver) {
+        return HnswVectorStore.builder(queryEmbeddingModel(embeddingModel, cacheProperties, queryEmbeddingCache,
+                        chatStageObserver))
+                .m(indexProperties.m())
+                .efConstruction(indexProperties.efConstruction())
+                .efSearch(indexProperties.efSearch())
                 .build();
     }
 
     @Bean
-    ChatClient chatClient(ChatClient.Builder chatClientBuilder, ChatMemory chatMemory, VectorStore vectorStore) {
+    EmbeddingPipeline embeddingPipeline(EmbeddingModel embeddingModel, IngestionProperties ingestionProperties,
+                                        MeterRegistry meterRegistry) {
+        return new EmbeddingPipeline(embeddingModel, ingestionProperties.batching(), meterRegistry);
+    }
+
+    @Bean
+    MessageCodec chatMessageCodec(ChatMemoryProperties memoryProperties, MeterRegistry meterRegistry) {
+        if (memoryProperties.compression().enabled() && !memoryProperties.writeBehind()) {
+            throw new IllegalStateException("hbca.ai.memory.compression requires hbca.ai.memory.write-behind");
+        }
+        return new MessageCodec(memoryProperties.compression(), meterRegistry);
+    }
+
+    @Bean
+    ChatMessageStore chatMessageStore(@Qualifier("chatMemory") JdbcTemplate chatMemoryJdbcTemplate,
+                                      MessageCodec chatMessageCodec) {
+        return new ChatMessageStore(chatMemoryJdbcTemplate, chatMessageCodec);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "hbca.ai.memory", name = "write-behind", matchIfMissing = true)
+    WriteBehindChatMemoryRepository writeBehindChatMemoryRepository(ChatMessageStore chatMessageStore,
+                                                                    @Qualifier("chatMemory")
+                                                                    TransactionTemplate chatMemoryTransactionTemplate,
+                                                                    ChatMemoryProperties memoryProperties,
+                                                                    MeterRegistry meterRegistry) {
+        return new WriteBehindChatMemoryRepository(chatMessageStore, chatMemoryTransactionTemplate, memoryProperties,
+                meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "hbca.ai.memory.retention", name = "enabled", matchIfMissing = true)
+    ChatMemoryRetention chatMemoryRetention(ChatMessageStore chatMessageStore, ChatSummaryStore chatSummaryStore,
+                                            @Qualifier("chatMemory") TransactionTemplate chatMemoryTransactionTemplate,
+                                            ApplicationEventPublisher eventPublisher,
+                                            ChatMemoryProperties memoryProperties, MeterRegistry meterRegistry) {
+        return new ChatMemoryRetention(chatMessageStore, chatSummaryStore, chatMemoryTransactionTemplate,
+                eventPublisher, memoryProperties, meterRegistry);
+    }
+
+    @Bean
+    ChatSummaryStore chatSummaryStore(@Qualifier("chatMemory") JdbcTemplate chatMemoryJdbcTemplate) {
+        return new ChatSummaryStore(chatMemoryJdbcTemplate);
+    }
+
+    @Bean
+    ChatMemory chatMemory(JdbcChatMemoryRepository jdbcChatMemoryRepository,
+                          ObjectProvider<WriteBehindChatMemoryRepository> writeBehindChatMemoryRepository,
+                          ChatMessageStore chatMessageStore,
+                          ChatMemoryProperties memoryProperties, ChatSummaryStore chatSummaryStore,
+                          @Qualifier("chatMemory") TransactionTemplate chatMemoryTransactionTemplate,
+                          ChatModel chatModel, MeterRegistry meterRegistry,
+                          BlockingCallMonitor blockingCallMonitor,
+                          ChatStageObserver chatStageObserver) throws IOException {
+        ChatMemoryRepository chatMemoryRepository =
+                writeBehindChatMemoryRepository.getIfAvailable(() -> jdbcChatMemoryRepository);
+        if (chatMemoryRepository == jdbcChatMemoryRepository && chatMessageStore.hasCompressedMessages()) {
+            throw new IllegalStateException("hbca.ai.memory.write-behind=false cannot read compressed chat memory; "
+                    + "keep write-behind on while rows in content_compressed exist");
+        }
+        ChatMemory chatMemory;
+        if (memoryProperties.mode() == ChatMemoryProperties.Mode.SUMMARIZING) {
+            chatMemory = new SummarizingChatMemory(chatMemoryRepository, chatSummaryStore,
+                    chatMemoryTransactionTemplate, chatModel,
+                    conversationSummaryPrompt.getContentAsString(StandardCharsets.UTF_8),
+                    memoryProperties, meterRegistry);
+        } else {
+            chatMemory = MessageWindowChatMemory.builder()
+                    .chatMemoryRepository(chatMemoryRepository)
+                    /*
+                    "maxMessages" parameter tells the chat memory to send LLM the last 100 messages as context.
+                    */
+                    .maxMessages(memoryProperties.maxMessages())
+                    .build();
+        }
+        return new MonitoredChatMemory(chatMemory, blockingCallMonitor, chatStageObserver);
+    }
+
+    @Bean
+    ChatClient chatClient(ChatClient.Builder chatClientBuilder, ChatMemory chatMemory, VectorStore vectorStore,
+                          ResponseCacheProperties responseCacheProperties, EmbeddingModel embeddingModel,
+                          EmbeddingCacheProperties cacheProperties, EmbeddingCache queryEmbeddingCache,
+                          ToolInvocationTracker toolInvocationTracker, MeterRegistry meterRegistry,
+                          Scheduler blockingScheduler, ChatStageObserver chatStageObserver,
+                          InteractionLogProperties interactionLogProperties,
+                          RetrievalProperties retrievalProperties) throws IOException {
+        // Memory and retrieval block on JDBC and the index; they run on virtual threads.
+        List<Advisor> advisors = new ArrayList<>(List.of(
+                // These two advisors time the turn up to the model request and the first token
+                ChatStageAdvisor.turnStart(chatStageObserver),
+                ChatStageAdvisor.modelRequest(chatStageObserver),
+                PromptChatMemoryAdvisor
+                        .builder(chatMemory)
+                        .scheduler(blockingScheduler)
+                        .build(),
+                new AdaptiveRetrievalAdvisor(new ObservedVectorStore(vectorStore, chatStageObserver),
+                        retrievalContextPrompt.getContentAsString(StandardCharsets.UTF_8), retrievalProperties,
+                        blockingScheduler, meterRegistry)));
+        if (interactionLogProperties.enabled()) {
+            // This advisor logs a redacted sample of chat interactions
+            advisors.add(new InteractionLoggingAdvisor(interactionLogProperties));
+        }
+        if (responseCacheProperties.enabled()) {
+            advisors.add(new SemanticResponseCacheAdvisor(
+                    queryEmbeddingModel(embeddingModel, cacheProperties, queryEmbeddingCache, chatStageObserver),
+                    chatMemory, toolInvocationTracker, responseCacheProperties, meterRegistry));
+        }
         // Configures a chat client with system prompt and advisors
         return chatClientBuilder
                 .defaultSystem(systemPrompt)
-                .defaultAdvisors(
-                        // This advisor logs chat interactions
-                        new SimpleLoggerAdvisor(-1),
-                        PromptChatMemoryAdvisor
-                                .builder(chatMemory)
-                                .build(),
-                        QuestionAnswerAdvisor.builder(vectorStore)
-                                .searchRequest(SearchRequest.builder().build())
-                                .build())
+                .defaultAdvisors(advisors)
                 .defaultToolNames(aiToolsNames())
                 .build();
     }
+
+    /**
+     * Questions are embedded through the cache and timed as a chat stage; ingestion batches bypass both.
+     */
+    private static EmbeddingModel queryEmbeddingModel(EmbeddingModel embeddingModel,
+                                                      EmbeddingCacheProperties cacheProperties,
+                                                      EmbeddingCache queryEmbeddingCache,
+                                                      ChatStageObserver chatStageObserver) {
+        EmbeddingModel queryModel = cacheProperties.enabled()
+                ? new CachingEmbeddingModel(embeddingModel, queryEmbeddingCache)
+                : embeddingModel;
+        return new ObservedEmbeddingModel(queryModel, chatStageObserver);
+    }
 }
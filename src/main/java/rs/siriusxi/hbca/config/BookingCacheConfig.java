@@ -0,0 +1,40 @@
+package rs.siriusxi.hbca.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import rs.siriusxi.hbca.service.cache.BookingCacheInvalidationChannel;
+import rs.siriusxi.hbca.service.cache.BookingDetailCache;
+
+/**
+ * Configuration class for the booking detail cache.
+ * <p>
+ * Beans Defined:
+ * <p>
+ * - {@link BookingCacheInvalidationChannel} ({@code bookingCacheInvalidationChannel}):
+ *   Local-only channel, used unless another channel bean is defined, e.g. one backed by
+ *   a message broker in a multi-node deployment.
+ * <p>
+ * - {@link BookingDetailCache} ({@code bookingDetailCache}):
+ *   Read-through cache used by {@code HotelBookingService}, sized and expired by
+ *   {@link BookingCacheProperties} ({@code hbca.bookings.cache.*}).
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(BookingCacheProperties.class)
+public class BookingCacheConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    BookingCacheInvalidationChannel bookingCacheInvalidationChannel() {
+        return BookingCacheInvalidationChannel.local();
+    }
+
+    @Bean
+    BookingDetailCache bookingDetailCache(BookingCacheProperties properties,
+                                          BookingCacheInvalidationChannel bookingCacheInvalidationChannel,
+                                          MeterRegistry meterRegistry) {
+        return new BookingDetailCache(properties, bookingCacheInvalidationChannel, meterRegistry);
+    }
+}
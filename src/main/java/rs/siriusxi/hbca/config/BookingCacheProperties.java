@@ -0,0 +1,20 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Read-through cache of booking details, bound from {@code hbca.bookings.cache.*}.
+ *
+ * @param enabled     whether booking lookups are served from the cache
+ * @param maximumSize maximum number of cached bookings
+ * @param expireAfter time-to-live of an entry after it was loaded; bounds staleness
+ *                    if an invalidation from another node is lost
+ */
+@ConfigurationProperties("hbca.bookings.cache")
+public record BookingCacheProperties(@DefaultValue("true") boolean enabled,
+                                     @DefaultValue("10000") long maximumSize,
+                                     @DefaultValue("5m") Duration expireAfter) {
+}
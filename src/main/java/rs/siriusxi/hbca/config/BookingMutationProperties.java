@@ -0,0 +1,18 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Optimistic locking of single-booking changes, bound from {@code hbca.bookings.mutations.*}.
+ *
+ * @param maxAttempts    attempts of a change whose booking was modified concurrently,
+ *                       after which the conflict is reported to the caller
+ * @param initialBackoff pause before the first retry; doubled on every further one, with jitter
+ */
+@ConfigurationProperties("hbca.bookings.mutations")
+public record BookingMutationProperties(@DefaultValue("5") int maxAttempts,
+                                        @DefaultValue("5ms") Duration initialBackoff) {
+}
@@ -2,14 +2,24 @@ package rs.siriusxi.hbca.config;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Description;
+import rs.siriusxi.hbca.service.BookingLookupCoalescer;
 import rs.siriusxi.hbca.service.HotelBookingService;
+import rs.siriusxi.hbca.service.ai.BlockingCallMonitor;
+import rs.siriusxi.hbca.service.ai.ParallelToolTurn;
+import rs.siriusxi.hbca.service.ai.ToolInvocationTracker;
+import rs.siriusxi.hbca.service.ai.observation.ChatStageObserver;
 import rs.siriusxi.hbca.ui.dto.HotelBookingDetail;
 
-import java.util.function.Function;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import static rs.siriusxi.hbca.service.ai.observation.ChatStageAdvisor.PROMPT_TOKENS_CONTEXT;
 
 /**
  * Configuration class defining function beans for hotel booking operations.
@@ -18,7 +28,12 @@ import java.util.function.Function;
  * that it declares beans for the application context. The functions
  * defined in this class allow for finding booking details, cancelling
  * bookings, and changing room types for existing bookings. It makes use of
- * {@link HotelBookingService} to perform these operations.
+ * {@link HotelBookingService} to perform these operations, and reports every
+ * invocation to the {@link ToolInvocationTracker} using the conversation id passed
+ * in the {@link ToolContext}. Invocations are timed by the {@link BlockingCallMonitor},
+ * which also records whether they ran on a virtual thread, and observed as
+ * {@code tool.<name>} chat stages by the {@link ChatStageObserver}. Booking lookups go through
+ * the {@link BookingLookupCoalescer}, so lookups run in parallel within one turn share a single query.
  * <p>
  * The class provides three AI tool functions:
  * - {@link #findBooking()}: Retrieves booking details by booking number
@@ -52,7 +67,18 @@ public class BookingToolsConfig {
         return new String[]{FIND_BOOKING_TOOL, CANCEL_BOOKING_TOOL, CHANGE_BOOKING_ROOM_TYPE_TOOL};
     }
 
+    /**
+     * Tools that only read booking data and may run concurrently within one turn
+     */
+    public static Set<String> readOnlyToolNames() {
+        return Set.of(FIND_BOOKING_TOOL);
+    }
+
     private final HotelBookingService hotelBookingService;
+    private final BookingLookupCoalescer bookingLookupCoalescer;
+    private final ToolInvocationTracker toolInvocationTracker;
+    private final BlockingCallMonitor blockingCallMonitor;
+    private final ChatStageObserver chatStageObserver;
 
     public record CancelBookingRequest(String bookingNumber, String firstName, String lastName) {
     }
@@ -66,29 +92,38 @@ public class BookingToolsConfig {
 
     @Bean(FIND_BOOKING_TOOL)
     @Description("Request to find or get booking details for a customer by booking number")
-    Function<FindBookingRequest, HotelBookingDetail> findBooking() {
-        return request ->
-                hotelBookingService
-                        .findBooking(request.bookingNumber().trim());
+    BiFunction<FindBookingRequest, ToolContext, HotelBookingDetail> findBooking() {
+        return (request, toolContext) -> invoke(FIND_BOOKING_TOOL, toolContext, () -> {
+            ParallelToolTurn turn = ParallelToolTurn.from(toolContext);
+            return bookingLookupCoalescer.findBooking(request.bookingNumber(), turn,
+                    turn == null ? 1 : turn.calls(FIND_BOOKING_TOOL));
+        });
     }
 
     @Bean(CANCEL_BOOKING_TOOL)
     @Description("Request to cancel booking for a customer")
-    Function<CancelBookingRequest, String> cancelBooking() {
-        return request -> {
+    BiFunction<CancelBookingRequest, ToolContext, String> cancelBooking() {
+        return (request, toolContext) -> invoke(CANCEL_BOOKING_TOOL, toolContext, () -> {
             hotelBookingService.cancelBooking(request.bookingNumber(),
                     request.firstName(), request.lastName());
             return "";
-        };
+        });
     }
 
     @Bean(CHANGE_BOOKING_ROOM_TYPE_TOOL)
     @Description("Request to change room type for a customer booking")
-    Function<ChangeRoomTypeRequest, String> changeBookingRoomType() {
-        return request -> {
+    BiFunction<ChangeRoomTypeRequest, ToolContext, String> changeBookingRoomType() {
+        return (request, toolContext) -> invoke(CHANGE_BOOKING_ROOM_TYPE_TOOL, toolContext, () -> {
             hotelBookingService.changeBookingRoomType(request.bookingNumber(),
                     request.firstName(), request.lastName(), request.roomType());
             return "";
-        };
+        });
+    }
+
+    private <T> T invoke(String tool, ToolContext toolContext, Supplier<T> call) {
+        toolInvocationTracker.recordInvocation(toolContext);
+        int promptTokens = toolContext.getContext().get(PROMPT_TOKENS_CONTEXT) instanceof Integer tokens ? tokens : 0;
+        return chatStageObserver.observe("tool." + tool, promptTokens,
+                () -> blockingCallMonitor.record("tool", tool, call));
     }
 }
@@ -0,0 +1,14 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Bulk booking operations, bound from {@code hbca.bookings.bulk.*}.
+ *
+ * @param chunkSize bookings read and updated per transaction; one set-based statement
+ *                  per chunk, so a failure only rolls back its own chunk
+ */
+@ConfigurationProperties("hbca.bookings.bulk")
+public record BulkOperationProperties(@DefaultValue("500") int chunkSize) {
+}
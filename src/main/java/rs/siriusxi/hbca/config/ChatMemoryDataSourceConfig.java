@@ -0,0 +1,76 @@
+package rs.siriusxi.hbca.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
+import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepositoryDialect;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.JdbcConnectionDetails;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration class giving chat memory its own connection pool.
+ * <p>
+ * Booking lookups and changes use the auto-configured {@code spring.datasource} pool.
+ * Chat memory flushes, summary reads and writes and the Spring AI JDBC repository use a
+ * second Hikari pool, so a burst of memory traffic cannot starve booking transactions.
+ * <p>
+ * Beans Defined (all qualified {@code chatMemory} and not default candidates, so the
+ * booking pool, JPA and Flyway keep the auto-configured beans):
+ * <p>
+ * - {@link HikariDataSource} ({@code chatMemoryDataSource}):
+ *   Connects to the same database as the booking pool, including a Docker Compose
+ *   service connection, and is tuned under {@code hbca.datasource.chat-memory.hikari}.
+ *   Setting {@code jdbc-url} there moves chat memory to a separate database, whose
+ *   {@code spring_ai_chat_memory} and {@code chat_memory_summary} tables must then be
+ *   created from the same migrations.
+ * <p>
+ * - {@link JdbcTemplate} and {@link TransactionTemplate} over that pool.
+ * <p>
+ * - {@link JdbcChatMemoryRepository}: replaces the auto-configured repository so it runs
+ *   on the chat memory pool too.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ChatMemoryDataSourceConfig {
+
+    @Bean(defaultCandidate = false)
+    @Qualifier("chatMemory")
+    @ConfigurationProperties("hbca.datasource.chat-memory.hikari")
+    HikariDataSource chatMemoryDataSource(JdbcConnectionDetails connectionDetails) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(connectionDetails.getDriverClassName())
+                .url(connectionDetails.getJdbcUrl())
+                .username(connectionDetails.getUsername())
+                .password(connectionDetails.getPassword())
+                .build();
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier("chatMemory")
+    JdbcTemplate chatMemoryJdbcTemplate(@Qualifier("chatMemory") DataSource chatMemoryDataSource) {
+        return new JdbcTemplate(chatMemoryDataSource);
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier("chatMemory")
+    TransactionTemplate chatMemoryTransactionTemplate(@Qualifier("chatMemory") DataSource chatMemoryDataSource) {
+        return new TransactionTemplate(new JdbcTransactionManager(chatMemoryDataSource));
+    }
+
+    @Bean
+    JdbcChatMemoryRepository jdbcChatMemoryRepository(@Qualifier("chatMemory") JdbcTemplate chatMemoryJdbcTemplate,
+                                                      @Qualifier("chatMemory") DataSource chatMemoryDataSource) {
+        return JdbcChatMemoryRepository.builder()
+                .jdbcTemplate(chatMemoryJdbcTemplate)
+                .dialect(JdbcChatMemoryRepositoryDialect.from(chatMemoryDataSource))
+                .build();
+    }
+}
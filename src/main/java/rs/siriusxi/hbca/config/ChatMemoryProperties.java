@@ -0,0 +1,91 @@
+package rs.siriusxi.hbca.config;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.core.io.Resource;
+
+import java.time.Duration;
+
+/**
+ * Chat memory settings, bound from {@code hbca.ai.memory.*}.
+ *
+ * @param mode                 how conversation history is bounded before it is sent to the model
+ * @param maxMessages          messages of a conversation sent to the model as context in
+ *                             {@link Mode#WINDOW} mode
+ * @param summarizing          token budget of {@link Mode#SUMMARIZING} mode
+ * @param writeBehind          when {@code true}, conversations are served from memory and
+ *                             persisted asynchronously; otherwise every turn goes to JDBC
+ * @param maximumConversations active conversations kept in memory
+ * @param expireAfterAccess    idle time after which a conversation is dropped from memory;
+ *                             it is reloaded from the database on its next turn
+ * @param flushInterval        delay between two write-behind flushes; bounds how many
+ *                             turns a crash can lose
+ * @param retention            removal of conversations idle past a time to live
+ * @param compression          encoding of message bodies written by the write-behind repository
+ */
+@ConfigurationProperties("hbca.ai.memory")
+public record ChatMemoryProperties(@DefaultValue("window") Mode mode,
+                                   @DefaultValue("100") int maxMessages,
+                                   @DefaultValue Summarizing summarizing,
+                                   @DefaultValue("true") boolean writeBehind,
+                                   @DefaultValue("10000") long maximumConversations,
+                                   @DefaultValue("30m") Duration expireAfterAccess,
+                                   @DefaultValue("250ms") Duration flushInterval,
+                                   @DefaultValue Retention retention,
+                                   @DefaultValue Compression compression) {
+
+    public enum Mode {
+        /**
+         * The last {@code maxMessages} messages, verbatim
+         */
+        WINDOW,
+        /**
+         * Recent turns verbatim plus a rolling summary of older ones, within a token budget
+         */
+        SUMMARIZING
+    }
+
+    /**
+     * @param tokenBudget  upper bound of the memory sent with a prompt, summary included
+     * @param recentTokens tokens of the most recent turns kept verbatim when older
+     *                     turns are folded into the summary; must be below {@code tokenBudget}
+     */
+    public record Summarizing(@DefaultValue("3000") int tokenBudget,
+                              @DefaultValue("1500") int recentTokens) {
+    }
+
+    /**
+     * @param enabled    run the retention job
+     * @param timeToLive idle time after which a conversation is removed; must exceed
+     *                   {@code expireAfterAccess} so no conversation held in memory expires
+     * @param archive    copy expired messages to {@code chat_memory_archive} before deleting them
+     * @param interval   delay between two runs of the job
+     * @param batchSize  conversations removed per transaction
+     * @param maxBatches batches per run; the rest waits for the next run
+     * @param batchPause pause between two batches, leaving the pool and locks to chat turns
+     */
+    public record Retention(@DefaultValue("true") boolean enabled,
+                            @DefaultValue("30d") Duration timeToLive,
+                            @DefaultValue("false") boolean archive,
+                            @DefaultValue("1h") Duration interval,
+                            @DefaultValue("100") int batchSize,
+                            @DefaultValue("50") int maxBatches,
+                            @DefaultValue("200ms") Duration batchPause) {
+    }
+
+    /**
+     * @param enabled    deflate message bodies into {@code content_compressed}; requires
+     *                   {@code writeBehind}, since Spring AI's JDBC repository reads only {@code content},
+     *                   and so does disabling it later, until no compressed row is left
+     * @param dictionary preset deflate dictionary trained on typical support traffic; empty
+     *                   compresses without one, but then short messages barely shrink
+     * @param minSize    bodies smaller than this many UTF-8 bytes are stored as text
+     * @param level      deflate level, 1 (fastest) to 9 (smallest)
+     */
+    public record Compression(@DefaultValue("false") boolean enabled,
+                              @DefaultValue("classpath:chat-memory.dict") @Nullable Resource dictionary,
+                              @DefaultValue("128") int minSize,
+                              @DefaultValue("6") int level) {
+    }
+}
@@ -0,0 +1,24 @@
+package rs.siriusxi.hbca.config;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Query embedding cache used by RAG retrieval, bound from {@code hbca.rag.query-cache.*}.
+ *
+ * @param enabled        whether user questions are looked up in the cache before embedding
+ * @param maximumSize    maximum number of cached questions
+ * @param expireAfter    time-to-live of an entry after it was written
+ * @param persistentFile optional file the cache is loaded from at startup and saved to at
+ *                       shutdown, so common questions stay warm across restarts
+ */
+@ConfigurationProperties("hbca.rag.query-cache")
+public record EmbeddingCacheProperties(@DefaultValue("true") boolean enabled,
+                                       @DefaultValue("10000") long maximumSize,
+                                       @DefaultValue("24h") Duration expireAfter,
+                                       @Nullable Path persistentFile) {
+}
@@ -0,0 +1,43 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings of the RAG document ingestion pipeline, bound from {@code hbca.rag.ingestion.*}.
+ *
+ * @param sources        Spring resource locations or patterns to index, e.g.
+ *                       {@code classpath:booking-terms.txt} or {@code file:./knowledge/**}{@code /*.txt}
+ * @param segmentFile    binary vector store segment the index is persisted to
+ * @param manifestFile   chunk manifest (id, source, content hash) kept next to the segment
+ * @param checkpointFile journal of embeddings computed by an unfinished run, used to resume it
+ * @param background     when {@code true}, ingestion runs on a virtual thread and the
+ *                       application serves traffic while indexing finishes
+ * @param batching       how chunks are grouped and sent to the embedding model
+ */
+@ConfigurationProperties("hbca.rag.ingestion")
+public record IngestionProperties(@DefaultValue("classpath:booking-terms.txt") List<String> sources,
+                                  @DefaultValue("./store/rag/booking-terms.hvs") Path segmentFile,
+                                  @DefaultValue("./store/rag/booking-terms.manifest") Path manifestFile,
+                                  @DefaultValue("./store/rag/booking-terms.checkpoint") Path checkpointFile,
+                                  @DefaultValue("false") boolean background,
+                                  @DefaultValue Batching batching) {
+
+    /**
+     * @param tokenBudget    estimated tokens per embedding request
+     * @param maxChunks      chunks per embedding request, whatever their size
+     * @param concurrency    embedding requests in flight at once
+     * @param maxAttempts    attempts per batch before it is reported as failed
+     * @param initialBackoff delay before the first retry; doubled on every further retry
+     */
+    public record Batching(@DefaultValue("8000") int tokenBudget,
+                           @DefaultValue("64") int maxChunks,
+                           @DefaultValue("4") int concurrency,
+                           @DefaultValue("5") int maxAttempts,
+                           @DefaultValue("500ms") Duration initialBackoff) {
+    }
+}
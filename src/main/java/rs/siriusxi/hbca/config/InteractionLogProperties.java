@@ -0,0 +1,25 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Sampled logging of chat interactions, bound from {@code hbca.ai.interaction-log.*}.
+ *
+ * @param enabled    whether interactions are logged at all
+ * @param sampleRate share of turns logged, between 0 and 1; failed turns are always logged
+ * @param maxChars   maximum characters kept of the question and of the answer
+ * @param redact     regular expressions whose matches are replaced before logging,
+ *                   by default e-mail addresses, card numbers and phone numbers
+ */
+@ConfigurationProperties("hbca.ai.interaction-log")
+public record InteractionLogProperties(@DefaultValue("true") boolean enabled,
+                                       @DefaultValue("0.1") double sampleRate,
+                                       @DefaultValue("2000") int maxChars,
+                                       @DefaultValue({"[\\w.+-]+@[\\w-]+(\\.[\\w-]+)+",
+                                               "\\b(?:\\d[ -]?){13,19}\\b",
+                                               "\\+\\d[\\d ()-]{7,}\\d|\\b\\d{3}[ .-]?\\d{3}[ .-]?\\d{4}\\b"})
+                                       List<String> redact) {
+}
@@ -0,0 +1,23 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Opt-in semantic cache of assistant answers, bound from {@code hbca.ai.response-cache.*}.
+ *
+ * @param enabled             whether answers are cached and replayed at all
+ * @param similarityThreshold minimum cosine similarity between a new question and a
+ *                            previously answered one for the cached answer to be replayed
+ * @param maximumSize         maximum number of cached answers
+ * @param expireAfter         time-to-live of a cached answer; keep it below the cadence
+ *                            at which booking terms change
+ */
+@ConfigurationProperties("hbca.ai.response-cache")
+public record ResponseCacheProperties(@DefaultValue("false") boolean enabled,
+                                      @DefaultValue("0.97") double similarityThreshold,
+                                      @DefaultValue("1000") long maximumSize,
+                                      @DefaultValue("6h") Duration expireAfter) {
+}
@@ -0,0 +1,22 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Retrieval policy of the RAG advisor, bound from {@code hbca.rag.retrieval.*}.
+ *
+ * @param skipLookups         skip the vector search for turns classified as booking lookups
+ *                            or small talk, which are answered by tools or need no terms
+ * @param similarityThreshold minimum cosine similarity of a chunk to be used
+ * @param relativeMargin      chunks scoring more than this below the best hit are dropped
+ * @param minTopK             chunks searched for a short, single question
+ * @param maxTopK             chunks searched for a long or compound question
+ */
+@ConfigurationProperties("hbca.rag.retrieval")
+public record RetrievalProperties(@DefaultValue("true") boolean skipLookups,
+                                  @DefaultValue("0.5") double similarityThreshold,
+                                  @DefaultValue("0.15") double relativeMargin,
+                                  @DefaultValue("2") int minTopK,
+                                  @DefaultValue("6") int maxTopK) {
+}
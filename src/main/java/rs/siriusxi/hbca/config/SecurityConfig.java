@@ -2,6 +2,7 @@ package rs.siriusxi.hbca.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
@@ -12,7 +13,8 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     /**
-     * Configures a security filter chain to permit all requests
+     * Configures a security filter chain to permit all requests; HTTP Basic authenticates
+     * the admin user for endpoints restricted with {@code @RolesAllowed}
      */
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) {
@@ -21,6 +23,8 @@ public class SecurityConfig {
                 .anyRequest().permitAll()
         );
 
+        http.httpBasic(Customizer.withDefaults());
+
         http.csrf(csrf -> csrf.ignoringRequestMatchers("/h2-console/**"));
         http.headers(headers ->
                 headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin));
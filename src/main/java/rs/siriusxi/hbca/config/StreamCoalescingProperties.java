@@ -0,0 +1,20 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Coalescing of streamed answer fragments pushed to the browser, bound from
+ * {@code hbca.ui.stream.coalescing.*}.
+ *
+ * @param enabled      push every fragment as its own message when false
+ * @param window       longest time a fragment waits for others to share its message
+ * @param maxFragments fragments per message; a full message is pushed without waiting
+ */
+@ConfigurationProperties("hbca.ui.stream.coalescing")
+public record StreamCoalescingProperties(@DefaultValue("true") boolean enabled,
+                                         @DefaultValue("30ms") Duration window,
+                                         @DefaultValue("64") int maxFragments) {
+}
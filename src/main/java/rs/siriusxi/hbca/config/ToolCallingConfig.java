@@ -0,0 +1,52 @@
+package rs.siriusxi.hbca.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import rs.siriusxi.hbca.service.ai.ParallelToolCallingManager;
+
+/**
+ * Configuration class defining how tool calls requested by the model are executed.
+ * <p>
+ * Beans Defined:
+ * <p>
+ * - {@link ToolCallingManager} ({@code toolCallingManager}):
+ *   Replaces the manager auto-configured by Spring AI, which the chat model picks up.
+ *   It is built from the same resolver and exception processor; with
+ *   {@code hbca.ai.tools.parallel=true} it is wrapped in a {@link ParallelToolCallingManager}
+ *   so read-only tool calls of one turn run concurrently on virtual threads.
+ * <p>
+ * Configuration Notes:
+ * <p>
+ * - {@link ToolExecutionProperties} ({@code hbca.ai.tools.*}) sets the per-conversation
+ *   concurrency and the window in which booking lookups are coalesced into one query.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(ToolExecutionProperties.class)
+public class ToolCallingConfig {
+
+    @Bean
+    ToolCallingManager toolCallingManager(ToolCallbackResolver toolCallbackResolver,
+                                          ToolExecutionExceptionProcessor toolExecutionExceptionProcessor,
+                                          ObservationRegistry observationRegistry,
+                                          ToolExecutionProperties properties,
+                                          AsyncTaskExecutor blockingTaskExecutor,
+                                          MeterRegistry meterRegistry) {
+        ToolCallingManager toolCallingManager = ToolCallingManager.builder()
+                .observationRegistry(observationRegistry)
+                .toolCallbackResolver(toolCallbackResolver)
+                .toolExecutionExceptionProcessor(toolExecutionExceptionProcessor)
+                .build();
+        if (!properties.parallel()) {
+            return toolCallingManager;
+        }
+        return new ParallelToolCallingManager(toolCallingManager, BookingToolsConfig.readOnlyToolNames(),
+                properties.maxConcurrencyPerConversation(), blockingTaskExecutor, meterRegistry);
+    }
+}
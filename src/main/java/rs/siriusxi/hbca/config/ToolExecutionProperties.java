@@ -0,0 +1,24 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Execution of booking tools requested by the model, bound from {@code hbca.ai.tools.*}.
+ *
+ * @param parallel                      run several read-only tool calls of one model turn concurrently
+ * @param maxConcurrencyPerConversation tool calls of one conversation running at the same time
+ * @param coalescingWindow              longest time the booking lookups of one parallel turn wait for the
+ *                                      turn's other lookups to share one {@code IN (...)} query; the
+ *                                      batch is sent as soon as all of them arrived, and zero disables
+ *                                      coalescing
+ * @param maxCoalescedLookups           booking numbers per coalesced query
+ */
+@ConfigurationProperties("hbca.ai.tools")
+public record ToolExecutionProperties(@DefaultValue("true") boolean parallel,
+                                      @DefaultValue("4") int maxConcurrencyPerConversation,
+                                      @DefaultValue("2ms") Duration coalescingWindow,
+                                      @DefaultValue("100") int maxCoalescedLookups) {
+}
@@ -0,0 +1,17 @@
+package rs.siriusxi.hbca.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Tuning knobs for the in-process HNSW vector index, bound from {@code hbca.rag.index.*}.
+ *
+ * @param m              links per graph node; higher raises recall and memory
+ * @param efConstruction beam width used while building the graph
+ * @param efSearch       beam width used per query; raise for recall, lower for latency
+ */
+@ConfigurationProperties("hbca.rag.index")
+public record VectorIndexProperties(@DefaultValue("16") int m,
+                                    @DefaultValue("200") int efConstruction,
+                                    @DefaultValue("64") int efSearch) {
+}
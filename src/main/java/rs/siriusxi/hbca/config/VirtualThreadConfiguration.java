@@ -0,0 +1,90 @@
+package rs.siriusxi.hbca.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Configuration class providing virtual-thread execution for the blocking work of the
+ * reactive chat pipeline.
+ * <p>
+ * {@code CustomerSupportAssistant.chat} returns a {@code Flux}, while chat memory,
+ * retrieval and the booking tools block on JDBC. Running that work on virtual threads
+ * keeps Reactor and web threads free; a blocked virtual thread only parks.
+ * <p>
+ * Beans Defined:
+ * <p>
+ * - {@link SimpleAsyncTaskExecutor} ({@code blockingTaskExecutor}):
+ *   Starts one virtual thread per task and decorates tasks with the
+ *   {@link ContextPropagatingTaskDecorator}, so trace and security context follow them.
+ * <p>
+ * - {@link Scheduler} ({@code blockingScheduler}):
+ *   Reactor view of that executor, used by the chat memory and retrieval advisors.
+ *   Timed as the {@code hbca.blocking} executor ({@code executor.execution}, {@code executor.idle}).
+ * <p>
+ * - {@link BoundedElasticOnVirtualThreads}:
+ *   Reactor scheduler factory installed for the lifetime of the context. Spring AI executes
+ *   the tool calls of streamed answers on Reactor's shared bounded-elastic scheduler; with
+ *   this factory it runs on virtual threads in every launcher (application, tests, perf
+ *   harnesses), not only when a system property was set before Reactor started.
+ * <p>
+ * Configuration Notes:
+ * <p>
+ * - {@code spring.reactor.context-propagation=auto} restores thread locals from the Reactor
+ *   context, so the decorator captures the caller's context when a task is submitted.
+ */
+@Configuration(proxyBeanMethods = false)
+public class VirtualThreadConfiguration {
+
+    @Bean
+    SimpleAsyncTaskExecutor blockingTaskExecutor(ContextPropagatingTaskDecorator contextPropagatingTaskDecorator) {
+        var executor = new SimpleAsyncTaskExecutor("blocking-");
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(contextPropagatingTaskDecorator);
+        return executor;
+    }
+
+    @Bean
+    static BoundedElasticOnVirtualThreads boundedElasticOnVirtualThreads() {
+        return new BoundedElasticOnVirtualThreads();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    Scheduler blockingScheduler(SimpleAsyncTaskExecutor blockingTaskExecutor, MeterRegistry meterRegistry) {
+        return Schedulers.fromExecutor(ExecutorServiceMetrics.monitor(meterRegistry, blockingTaskExecutor,
+                "hbca.blocking"));
+    }
+
+    /**
+     * Backs every bounded-elastic scheduler with one virtual thread per task; replacing the
+     * factory disposes the schedulers cached so far, so it is installed before the chat pipeline runs
+     */
+    static final class BoundedElasticOnVirtualThreads implements Schedulers.Factory, InitializingBean, DisposableBean {
+
+        @Override
+        public Scheduler newBoundedElastic(int threadCap, int queuedTaskCap, ThreadFactory threadFactory,
+                                           int ttlSeconds) {
+            return newThreadPerTaskBoundedElastic(threadCap, queuedTaskCap,
+                    Thread.ofVirtual().name("boundedElastic-virtual-", 1).factory());
+        }
+
+        @Override
+        public void afterPropertiesSet() {
+            Schedulers.setFactory(this);
+        }
+
+        @Override
+        public void destroy() {
+            Schedulers.resetFactory();
+        }
+    }
+}
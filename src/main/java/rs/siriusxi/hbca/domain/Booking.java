@@ -49,6 +49,10 @@ public class Booking {
     @Column(nullable = false)
     private BookingStatus bookingStatus;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     /**
      * Implements Hibernate‑aware equality check based on ID
      */
@@ -26,6 +26,13 @@ public class Customer {
     @Column(nullable = false)
     private String lastName;
 
+    /* Upper-cased names generated by the database, used for indexed name verification. */
+    @Column(insertable = false, updatable = false)
+    private String firstNameKey;
+
+    @Column(insertable = false, updatable = false)
+    private String lastNameKey;
+
     @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Booking> bookings = new ArrayList<>();
 }
@@ -1,10 +1,18 @@
 package rs.siriusxi.hbca.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import rs.siriusxi.hbca.domain.Booking;
+import rs.siriusxi.hbca.domain.BookingStatus;
+import rs.siriusxi.hbca.domain.RoomType;
+import rs.siriusxi.hbca.ui.dto.HotelBookingDetail;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -16,23 +24,130 @@ import java.util.Optional;
  * <p>
  * The following additional query methods are defined:
  * <p>
- * - {@code findBookingBy(String, String, String)}: Fetches a booking based on
- *   booking number, customer's first name, and last name.
+ * - {@code findBookingStateBy(String, String, String)}: Fetches the state and version
+ *   of a booking based on booking number, customer's first name, and last name. Names are compared
+ *   case-insensitively through the generated, indexed {@code first_name_key} and
+ *   {@code last_name_key} columns, so verification never evaluates {@code UPPER}
+ *   on stored rows.
+ * <p>
+ * - {@code updateBookingStatus(String, long, BookingStatus)} and
+ *   {@code updateRoomType(String, long, RoomType)}: Conditional updates for optimistic
+ *   locking; they change nothing if the booking's version moved on.
  * <p>
  * - {@code findByBookingNumber(String)}: Retrieves a booking by its unique
  *   booking number.
+ * <p>
+ * - {@code findBookingDetailsAfter(String, Limit)}: Reads one keyset page of
+ *   {@link HotelBookingDetail} rows ordered by booking number, projected directly
+ *   from a single {@code bookings} to {@code customers} join.
+ * <p>
+ * - {@code findBookingDetailsByNumbers(Collection)}: Reads the {@link HotelBookingDetail}
+ *   rows of many booking numbers with one {@code IN (...)} query.
+ * <p>
+ * - {@code findBookingStates(Collection)}, {@code findBookingNumbers(...)},
+ *   {@code updateBookingStatus(Collection, BookingStatus, BookingStatus)} and
+ *   {@code updateRoomType(Collection, RoomType)}: Set-based reads and updates used
+ *   by bulk operations, one statement per chunk of bookings. Bulk updates are
+ *   deliberate overrides: they do not check versions but do increment them, so
+ *   concurrent single-booking changes notice them. The status update only touches
+ *   bookings still in the expected current status.
  */
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Query("""
-            SELECT b FROM Booking b
+            SELECT new rs.siriusxi.hbca.repository.BookingState(b.bookingNumber, b.bookingStatus, b.roomType, b.version)
+            FROM Booking b JOIN b.customer c
             WHERE b.bookingNumber = ?1
-            AND upper(b.customer.firstName) = UPPER(?2)
-            AND upper(b.customer.lastName) = UPPER(?3)
+            AND c.firstNameKey = UPPER(?2)
+            AND c.lastNameKey = UPPER(?3)
+            """)
+    Optional<BookingState> findBookingStateBy(String bookingNumber,
+                                              String firstName,
+                                              String lastName);
+
+    /**
+     * Cancels or re-statuses the booking only if it still has {@code version}; returns the rows changed
+     */
+    @Modifying
+    @Query("""
+            UPDATE Booking b SET b.bookingStatus = ?3, b.version = b.version + 1
+            WHERE b.bookingNumber = ?1 AND b.version = ?2
             """)
-    Optional<Booking> findBookingBy(String bookingNumber,
-                                    String firstName,
-                                    String lastName);
+    int updateBookingStatus(String bookingNumber, long version, BookingStatus bookingStatus);
+
+    /**
+     * Changes the room type only if the booking still has {@code version}; returns the rows changed
+     */
+    @Modifying
+    @Query("""
+            UPDATE Booking b SET b.roomType = ?3, b.version = b.version + 1
+            WHERE b.bookingNumber = ?1 AND b.version = ?2
+            """)
+    int updateRoomType(String bookingNumber, long version, RoomType roomType);
 
     Optional<Booking> findByBookingNumber(String bookingNumber);
+
+    /**
+     * Keyset page of booking details: rows whose booking number sorts after
+     * {@code afterBookingNumber}, using the unique booking number index as cursor.
+     * Pass an empty string to read the first page.
+     */
+    @Query("""
+            SELECT new rs.siriusxi.hbca.ui.dto.HotelBookingDetail(
+                b.bookingNumber, c.firstName, c.lastName, b.checkInDate, b.checkOutDate,
+                b.bookingStatus, b.hotelName, b.roomType, b.numberOfGuests)
+            FROM Booking b JOIN b.customer c
+            WHERE b.bookingNumber > ?1
+            ORDER BY b.bookingNumber
+            """)
+    List<HotelBookingDetail> findBookingDetailsAfter(String afterBookingNumber, Limit limit);
+
+    /**
+     * Booking details of all given booking numbers in one query; unknown numbers are skipped
+     */
+    @Query("""
+            SELECT new rs.siriusxi.hbca.ui.dto.HotelBookingDetail(
+                b.bookingNumber, c.firstName, c.lastName, b.checkInDate, b.checkOutDate,
+                b.bookingStatus, b.hotelName, b.roomType, b.numberOfGuests)
+            FROM Booking b JOIN b.customer c
+            WHERE b.bookingNumber IN ?1
+            """)
+    List<HotelBookingDetail> findBookingDetailsByNumbers(Collection<String> bookingNumbers);
+
+    /**
+     * Status and room type of all given booking numbers; unknown numbers are skipped
+     */
+    @Query("""
+            SELECT new rs.siriusxi.hbca.repository.BookingState(b.bookingNumber, b.bookingStatus, b.roomType, b.version)
+            FROM Booking b
+            WHERE b.bookingNumber IN ?1
+            """)
+    List<BookingState> findBookingStates(Collection<String> bookingNumbers);
+
+    /**
+     * Keyset page of the numbers of bookings at the hotel in the given status whose stay
+     * overlaps {@code [from, to]}, ordered by booking number
+     */
+    @Query("""
+            SELECT b.bookingNumber FROM Booking b
+            WHERE b.hotelName = ?1
+            AND b.bookingStatus = ?2
+            AND b.checkInDate <= ?4
+            AND b.checkOutDate >= ?3
+            AND b.bookingNumber > ?5
+            ORDER BY b.bookingNumber
+            """)
+    List<String> findBookingNumbers(String hotelName, BookingStatus bookingStatus, LocalDate from, LocalDate to,
+                                    String afterBookingNumber, Limit limit);
+
+    @Modifying
+    @Query("""
+            UPDATE Booking b SET b.bookingStatus = ?3, b.version = b.version + 1
+            WHERE b.bookingNumber IN ?1 AND b.bookingStatus = ?2
+            """)
+    int updateBookingStatus(Collection<String> bookingNumbers, BookingStatus currentStatus, BookingStatus bookingStatus);
+
+    @Modifying
+    @Query("UPDATE Booking b SET b.roomType = ?2, b.version = b.version + 1 WHERE b.bookingNumber IN ?1")
+    int updateRoomType(Collection<String> bookingNumbers, RoomType roomType);
 }
@@ -0,0 +1,11 @@
+package rs.siriusxi.hbca.repository;
+
+import rs.siriusxi.hbca.domain.BookingStatus;
+import rs.siriusxi.hbca.domain.RoomType;
+
+/**
+ * The mutable state of a booking, projected without loading the entity. A change based
+ * on it is applied only while the booking still has this {@code version}.
+ */
+public record BookingState(String bookingNumber, BookingStatus bookingStatus, RoomType roomType, long version) {
+}
@@ -0,0 +1,149 @@
+package rs.siriusxi.hbca.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.jspecify.annotations.Nullable;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import rs.siriusxi.hbca.config.ToolExecutionProperties;
+import rs.siriusxi.hbca.service.ai.ParallelToolTurn;
+import rs.siriusxi.hbca.ui.dto.HotelBookingDetail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the booking lookups of one model turn into one {@code IN (...)} query.
+ * <p>
+ * When the model asks for several bookings in one turn, {@code ParallelToolCallingManager}
+ * runs the lookups concurrently and tags them with the turn's {@link ParallelToolTurn}.
+ * Instead of one query each, the lookups of a turn gather in a batch and the last one
+ * to arrive sends a single {@link HotelBookingService#findBookings} call that answers
+ * them all. Callers block until their booking is loaded:
+ * - A lookup outside a parallel turn, or the only lookup of its turn, queries at once.
+ * - Batches never mix turns, so one conversation's lookups never wait for another's.
+ * - If some lookups of the turn are late (held back by the per-conversation concurrency
+ *   limit, or their call failed before looking up), the batch is sent after
+ *   {@code coalescingWindow} anyway; the late ones form a new batch.
+ * - A number that matches no booking fails with the same error as
+ *   {@link HotelBookingService#findBooking(String)}.
+ * - A failed query fails every lookup of its batch.
+ * - A batch is sent early once it reaches {@code maxCoalescedLookups}.
+ * <p>
+ * A zero {@code coalescingWindow} disables coalescing and every lookup queries directly.
+ * <p>
+ * Metrics: {@code hbca.bookings.lookup.batch} (booking numbers per query).
+ */
+@Log4j2
+@Service
+public class BookingLookupCoalescer {
+
+    private final HotelBookingService hotelBookingService;
+    private final ToolExecutionProperties properties;
+    private final Executor delayedExecutor;
+    private final DistributionSummary batchSize;
+    /* Guarded by this. */
+    private final Map<ParallelToolTurn, Batch> pending = new HashMap<>();
+
+    public BookingLookupCoalescer(HotelBookingService hotelBookingService, ToolExecutionProperties properties,
+                                  AsyncTaskExecutor blockingTaskExecutor, MeterRegistry meterRegistry) {
+        this.hotelBookingService = hotelBookingService;
+        this.properties = properties;
+        this.delayedExecutor = CompletableFuture.delayedExecutor(
+                properties.coalescingWindow().toNanos(), TimeUnit.NANOSECONDS, blockingTaskExecutor);
+        this.batchSize = meterRegistry.summary("hbca.bookings.lookup.batch");
+    }
+
+    /**
+     * Finds the booking, sharing the query with the other {@code turnLookups - 1}
+     * lookups of the same parallel turn
+     */
+    public HotelBookingDetail findBooking(String bookingNumber, @Nullable ParallelToolTurn turn, int turnLookups) {
+        String number = bookingNumber.trim();
+        if (turn == null || turnLookups < 2 || properties.coalescingWindow().isZero()) {
+            batchSize.record(1);
+            return hotelBookingService.findBooking(number);
+        }
+
+        CompletableFuture<HotelBookingDetail> result;
+        Batch batch;
+        boolean opened = false;
+        boolean ready = false;
+        synchronized (this) {
+            batch = pending.get(turn);
+            if (batch == null) {
+                batch = new Batch(turnLookups);
+                pending.put(turn, batch);
+                opened = true;
+            }
+            result = batch.lookups.computeIfAbsent(number, _ -> new CompletableFuture<>());
+            batch.awaited--;
+            if (batch.awaited <= 0 || batch.lookups.size() >= properties.maxCoalescedLookups()) {
+                pending.remove(turn);
+                ready = true;
+            }
+        }
+        if (ready) {
+            load(batch.lookups);
+        } else if (opened) {
+            Batch timed = batch;
+            delayedExecutor.execute(() -> flush(turn, timed));
+        }
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void flush(ParallelToolTurn turn, Batch batch) {
+        synchronized (this) {
+            if (!pending.remove(turn, batch)) {
+                return;
+            }
+        }
+        load(batch.lookups);
+    }
+
+    private void load(Map<String, CompletableFuture<HotelBookingDetail>> batch) {
+        batchSize.record(batch.size());
+        List<HotelBookingDetail> found;
+        try {
+            found = hotelBookingService.findBookings(batch.keySet());
+        } catch (RuntimeException e) {
+            log.warn("Coalesced lookup of {} bookings failed", batch.size(), e);
+            batch.values().forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        found.forEach(booking -> {
+            var future = batch.get(booking.bookingNumber());
+            if (future != null) {
+                future.complete(booking);
+            }
+        });
+        batch.values().forEach(future -> future.completeExceptionally(new IllegalArgumentException("Booking not found")));
+    }
+
+    /**
+     * Lookups of one turn waiting for the query, and how many of the turn's lookups have not arrived
+     */
+    private static final class Batch {
+
+        private final Map<String, CompletableFuture<HotelBookingDetail>> lookups = new HashMap<>();
+        private int awaited;
+
+        Batch(int awaited) {
+            this.awaited = awaited;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package rs.siriusxi.hbca.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.jspecify.annotations.Nullable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.siriusxi.hbca.config.BulkOperationProperties;
+import rs.siriusxi.hbca.domain.RoomType;
+import rs.siriusxi.hbca.repository.BookingRepository;
+import rs.siriusxi.hbca.repository.BookingState;
+import rs.siriusxi.hbca.service.cache.BookingChangedEvent;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+import static rs.siriusxi.hbca.domain.BookingStatus.CANCELLED;
+import static rs.siriusxi.hbca.domain.BookingStatus.CONFIRMED;
+
+/**
+ * Service class for changing many bookings at once, e.g. when a hotel closes.
+ * <p>
+ * Bookings are selected by number or by {@link BookingCriteria} and processed in chunks
+ * of {@code hbca.bookings.bulk.chunk-size}. Each chunk is one transaction that reads the
+ * state of its bookings with one query and changes them with one set-based
+ * {@code UPDATE ... WHERE booking_number IN (...)}, instead of a load and a save per
+ * booking. A failing chunk is rolled back and reported; the other chunks still commit.
+ * <p>
+ * Only confirmed bookings are cancelled: the {@code UPDATE} itself requires the
+ * {@code CONFIRMED} status, and completed bookings are reported as rejected.
+ * <p>
+ * Every changed booking publishes a {@link BookingChangedEvent}, so cached copies are
+ * evicted once its chunk commits.
+ * <p>
+ * Outcomes are reported per booking number in a {@link BulkBookingResult}.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class BulkBookingService {
+
+    /**
+     * Selects the confirmed bookings at a hotel whose stay overlaps {@code [from, to]}
+     */
+    public record BookingCriteria(String hotelName, LocalDate from, LocalDate to) {
+    }
+
+    public enum Outcome {
+        UPDATED, UNCHANGED, NOT_FOUND, REJECTED, FAILED
+    }
+
+    public record ItemResult(String bookingNumber, Outcome outcome, @Nullable String error) {
+    }
+
+    /**
+     * Outcome of one bulk operation, one item per distinct booking number
+     */
+    public record BulkBookingResult(List<ItemResult> items) {
+
+        public long count(Outcome outcome) {
+            return items.stream().filter(item -> item.outcome() == outcome).count();
+        }
+    }
+
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BulkOperationProperties properties;
+
+    /**
+     * Cancels the given confirmed bookings; already cancelled ones are left unchanged and
+     * completed ones are rejected
+     */
+    public BulkBookingResult cancelBookings(Collection<String> bookingNumbers) {
+        return run("cancel", chunksOf(bookingNumbers), cancel());
+    }
+
+    /**
+     * Cancels all confirmed bookings matching the criteria
+     */
+    public BulkBookingResult cancelBookings(BookingCriteria criteria) {
+        return run("cancel", chunksOf(criteria), cancel());
+    }
+
+    /**
+     * Moves the given bookings to the room type; bookings already in it are left unchanged
+     */
+    public BulkBookingResult changeRoomTypes(Collection<String> bookingNumbers, RoomType roomType) {
+        return run("change room type", chunksOf(bookingNumbers), changeRoomType(roomType));
+    }
+
+    /**
+     * Moves all confirmed bookings matching the criteria to the room type
+     */
+    public BulkBookingResult changeRoomTypes(BookingCriteria criteria, RoomType roomType) {
+        return run("change room type", chunksOf(criteria), changeRoomType(roomType));
+    }
+
+    /**
+     * How a bulk operation recognizes bookings it does not need to touch or must not touch,
+     * and changes the rest; the update returns the rows it changed
+     */
+    private record Change(Predicate<BookingState> applied, Predicate<BookingState> allowed,
+                          ToIntFunction<List<String>> update) {
+    }
+
+    private Change cancel() {
+        return new Change(state -> state.bookingStatus() == CANCELLED,
+                state -> state.bookingStatus() == CONFIRMED,
+                numbers -> bookingRepository.updateBookingStatus(numbers, CONFIRMED, CANCELLED));
+    }
+
+    private Change changeRoomType(RoomType roomType) {
+        return new Change(state -> state.roomType() == roomType, _ -> true,
+                numbers -> bookingRepository.updateRoomType(numbers, roomType));
+    }
+
+    private BulkBookingResult run(String operation, Stream<List<String>> chunks, Change change) {
+        List<ItemResult> items = new ArrayList<>();
+        chunks.forEachOrdered(chunk -> {
+            try {
+                items.addAll(transactionTemplate.execute(_ -> apply(chunk, change)));
+            } catch (RuntimeException e) {
+                log.warn("Bulk {} failed for a chunk of {} bookings", operation, chunk.size(), e);
+                chunk.forEach(number -> items.add(new ItemResult(number, Outcome.FAILED, e.getMessage())));
+            }
+        });
+        var result = new BulkBookingResult(items);
+        log.info("Bulk {} of {} bookings: {} updated, {} unchanged, {} not found, {} rejected, {} failed", operation,
+                items.size(), result.count(Outcome.UPDATED), result.count(Outcome.UNCHANGED),
+                result.count(Outcome.NOT_FOUND), result.count(Outcome.REJECTED), result.count(Outcome.FAILED));
+        return result;
+    }
+
+    private List<ItemResult> apply(List<String> chunk, Change change) {
+        Map<String, BookingState> states = new HashMap<>();
+        bookingRepository.findBookingStates(chunk).forEach(state -> states.put(state.bookingNumber(), state));
+
+        List<ItemResult> items = new ArrayList<>(chunk.size());
+        List<String> toUpdate = new ArrayList<>();
+        for (String number : chunk) {
+            BookingState state = states.get(number);
+            if (state == null) {
+                items.add(new ItemResult(number, Outcome.NOT_FOUND, null));
+            } else if (change.applied().test(state)) {
+                items.add(new ItemResult(number, Outcome.UNCHANGED, null));
+            } else if (!change.allowed().test(state)) {
+                items.add(new ItemResult(number, Outcome.REJECTED, "Booking is " + state.bookingStatus()));
+            } else {
+                toUpdate.add(number);
+                items.add(new ItemResult(number, Outcome.UPDATED, null));
+            }
+        }
+        if (!toUpdate.isEmpty()) {
+            if (change.update().applyAsInt(toUpdate) != toUpdate.size()) {
+                // A booking left the expected status after it was read; report the chunk instead of guessing.
+                throw new OptimisticLockingFailureException("Bookings of the chunk were changed concurrently");
+            }
+            toUpdate.forEach(number -> eventPublisher.publishEvent(new BookingChangedEvent(number)));
+        }
+        return items;
+    }
+
+    private Stream<List<String>> chunksOf(Collection<String> bookingNumbers) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(bookingNumbers.stream().map(String::trim).toList()));
+        int size = Math.max(1, properties.chunkSize());
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += size) {
+            chunks.add(distinct.subList(from, Math.min(distinct.size(), from + size)));
+        }
+        return chunks.stream();
+    }
+
+    /**
+     * Keyset pages of matching booking numbers; each page is read after the previous
+     * chunk was processed, so only one chunk is held at a time
+     */
+    private Stream<List<String>> chunksOf(BookingCriteria criteria) {
+        Limit limit = Limit.of(Math.max(1, properties.chunkSize()));
+        return Stream.iterate(numbersAfter(criteria, "", limit), chunk -> !chunk.isEmpty(),
+                chunk -> numbersAfter(criteria, chunk.getLast(), limit));
+    }
+
+    private List<String> numbersAfter(BookingCriteria criteria, String afterBookingNumber, Limit limit) {
+        return bookingRepository.findBookingNumbers(criteria.hotelName(), CONFIRMED, criteria.from(), criteria.to(),
+                afterBookingNumber, limit);
+    }
+}
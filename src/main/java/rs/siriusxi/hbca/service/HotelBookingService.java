@@ -1,17 +1,32 @@
 package rs.siriusxi.hbca.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.jspecify.annotations.Nullable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import rs.siriusxi.hbca.domain.Booking;
 import rs.siriusxi.hbca.domain.RoomType;
+import rs.siriusxi.hbca.config.BookingMutationProperties;
 import rs.siriusxi.hbca.repository.BookingRepository;
-import rs.siriusxi.hbca.service.mapper.BookingDetailsMapper;
+import rs.siriusxi.hbca.repository.BookingState;
+import rs.siriusxi.hbca.service.cache.BookingChangedEvent;
+import rs.siriusxi.hbca.service.cache.BookingDetailCache;
+import rs.siriusxi.hbca.ui.dto.BookingPage;
 import rs.siriusxi.hbca.ui.dto.HotelBookingDetail;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToIntFunction;
 
 import static rs.siriusxi.hbca.domain.BookingStatus.*;
 
@@ -20,14 +35,21 @@ import static rs.siriusxi.hbca.domain.BookingStatus.*;
  * <p>
  * This class provides functionalities to retrieve, update, and manage
  * hotel bookings. It interacts with the {@link BookingRepository}
- * to perform data persistence and retrieval and uses the
- * {@link BookingDetailsMapper} to map entities to DTOs.
+ * to perform data persistence and retrieval; booking details are read
+ * as {@link HotelBookingDetail} projections, without loading entities.
  * <p>
  * Responsibilities:
- * - Retrieve booking details by booking number (with customer validation).
- * - Retrieve all hotel bookings in the system.
+ * - Retrieve booking details by booking number (with customer validation), one
+ * at a time or many in a single query, read through the {@link BookingDetailCache}.
+ * - Page or stream hotel bookings with constant memory, using keyset pagination
+ * over a single-query projection (no per-row customer fetch).
  * - Cancel a specific booking for a customer.
  * - Change the room type for an existing booking.
+ * - Guard both changes with optimistic locking: the booking's version is read with
+ * the customer verification and the update applies only if it is unchanged; a
+ * conflicting change is retried a bounded number of times with backoff.
+ * - Publish a {@link BookingChangedEvent} for every change, which evicts the cached
+ * booking once the transaction commits.
  * <p>
  * Annotations:
  * - {@code @Service}: Marks this class as a Spring service component.
@@ -36,17 +58,19 @@ import static rs.siriusxi.hbca.domain.BookingStatus.*;
  * - {@code @Log4j2}: Provides a logger instance for logging operations.
  * <p>
  * Transactional Behavior:
- * - Methods annotated with {@code @Transactional} ensure database
- * transaction management for data modification operations.
+ * - Every attempt of a booking change runs in its own transaction, started
+ * through the {@link TransactionTemplate} so conflicts can be retried.
  * - {@code @Transactional(readOnly = true)} is used for read-only operations
  * to optimize performance.
  * <p>
  * Exception Handling:
  * - Throws {@link IllegalArgumentException} when a booking is not found
  * or when invalid data is provided.
+ * - Throws {@link OptimisticLockingFailureException} when a change still
+ * conflicts after all attempts ({@code hbca.bookings.conflicts} counts them).
  *
  * @see BookingRepository
- * @see BookingDetailsMapper
+ * @see BookingDetailCache
  * @see HotelBookingDetail
  * @see Booking
  */
@@ -55,28 +79,26 @@ import static rs.siriusxi.hbca.domain.BookingStatus.*;
 @RequiredArgsConstructor
 public class HotelBookingService {
 
-    private final BookingRepository bookingRepository;
-    private final BookingDetailsMapper mapper;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1_000;
 
-    /**
-     * Finds booking by number and customer name
-     */
-    private Booking findBooking(String bookingNumber, String firstName, String lastName) {
-        return bookingRepository.
-                findBookingBy(bookingNumber, firstName, lastName)
-                .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
-    }
+    private final BookingRepository bookingRepository;
+    private final BookingDetailCache bookingDetailCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingMutationProperties mutationProperties;
+    private final MeterRegistry meterRegistry;
+    private final Scheduler blockingScheduler;
 
     /**
-     * Finds booking by number; maps to detail; throws if missing
+     * Finds booking by number, from the booking cache if possible; throws if missing
      */
-    @Transactional(readOnly = true)
     public @Nullable HotelBookingDetail findBooking(String bookingNumber) {
         log.info("Finding booking by number {}", bookingNumber);
 
-        var booking = bookingRepository
-                .findByBookingNumber(bookingNumber.trim())
-                .map(mapper::bookingToHotelBookingDetail)
+        var booking = bookingDetailCache
+                .get(bookingNumber.trim(), number ->
+                        bookingRepository.findBookingDetailsByNumbers(List.of(number)).stream().findFirst())
                 .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
 
         log.info("Found booking {}", booking);
@@ -84,26 +106,95 @@ public class HotelBookingService {
         return booking;
     }
 
-    public List<HotelBookingDetail> getBookings() {
-        return bookingRepository
-                .findAll()
-                .stream()
-                .map(mapper::bookingToHotelBookingDetail)
-                .toList();
+    /**
+     * Finds the bookings with the given numbers, loading those not cached in one query;
+     * unknown numbers are skipped
+     */
+    public List<HotelBookingDetail> findBookings(Collection<String> bookingNumbers) {
+        return bookingNumbers.isEmpty() ? List.of()
+                : bookingDetailCache.getAll(bookingNumbers, bookingRepository::findBookingDetailsByNumbers);
+    }
+
+    /**
+     * Reads one page of bookings after the given cursor; a {@code null} cursor reads the first page
+     */
+    @Transactional(readOnly = true)
+    public BookingPage getBookings(@Nullable String afterBookingNumber, int pageSize) {
+        return page(afterBookingNumber, pageSize);
+    }
+
+    /**
+     * Streams all bookings page by page; only one page is held in memory at a time.
+     * The next page is read only once the subscriber has requested past the current one.
+     * Each page is a single query in the repository's own read-only transaction.
+     */
+    public Flux<HotelBookingDetail> streamBookings(int pageSize) {
+        return Mono.fromCallable(() -> page(null, pageSize))
+                .expand(page -> page.nextCursor() == null
+                        ? Mono.empty()
+                        : Mono.fromCallable(() -> page(page.nextCursor(), pageSize)))
+                .concatMapIterable(BookingPage::items, 1)
+                .subscribeOn(blockingScheduler);
+    }
+
+    private BookingPage page(@Nullable String afterBookingNumber, int pageSize) {
+        int size = Math.clamp(pageSize, 1, MAX_PAGE_SIZE);
+        var items = bookingRepository.findBookingDetailsAfter(
+                afterBookingNumber == null ? "" : afterBookingNumber, Limit.of(size));
+        String nextCursor = items.size() < size ? null : items.getLast().bookingNumber();
+        return new BookingPage(items, nextCursor);
     }
 
-    @Transactional
     public void cancelBooking(String bookingNumber, String firstName, String lastName) {
-        var booking = findBooking(bookingNumber, firstName, lastName);
-        booking.setBookingStatus(CANCELLED);
-        bookingRepository.save(booking);
+        change(bookingNumber, firstName, lastName, state ->
+                bookingRepository.updateBookingStatus(state.bookingNumber(), state.version(), CANCELLED));
     }
 
-    @Transactional
     public void changeBookingRoomType(String bookingNumber, String firstName, String lastName, String roomType) {
         RoomType updatedRoomType = RoomType.valueOf(roomType);
-        var booking = findBooking(bookingNumber, firstName, lastName);
-        booking.setRoomType(updatedRoomType);
-        bookingRepository.save(booking);
+        change(bookingNumber, firstName, lastName, state ->
+                bookingRepository.updateRoomType(state.bookingNumber(), state.version(), updatedRoomType));
+    }
+
+    /**
+     * Verifies the customer and applies the conditional update in its own transaction;
+     * when the booking was changed concurrently it is re-read and the update retried
+     */
+    private void change(String bookingNumber, String firstName, String lastName,
+                        ToIntFunction<BookingState> update) {
+        long backoffMillis = mutationProperties.initialBackoff().toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(_ -> {
+                    var state = bookingRepository
+                            .findBookingStateBy(bookingNumber, firstName, lastName)
+                            .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
+                    if (update.applyAsInt(state) == 0) {
+                        throw new OptimisticLockingFailureException(
+                                "Booking %s was changed concurrently".formatted(bookingNumber));
+                    }
+                    eventPublisher.publishEvent(new BookingChangedEvent(state.bookingNumber()));
+                });
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= mutationProperties.maxAttempts()) {
+                    meterRegistry.counter("hbca.bookings.conflicts", "outcome", "exhausted").increment();
+                    throw e;
+                }
+                meterRegistry.counter("hbca.bookings.conflicts", "outcome", "retried").increment();
+                log.debug("Booking {} changed concurrently, retrying (attempt {})", bookingNumber, attempt);
+                sleep(backoffMillis + ThreadLocalRandom.current().nextLong(backoffMillis + 1));
+                backoffMillis *= 2;
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
     }
 }
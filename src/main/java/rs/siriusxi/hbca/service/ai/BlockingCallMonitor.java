@@ -0,0 +1,54 @@
+package rs.siriusxi.hbca.service.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.function.Supplier;
+
+/**
+ * Times blocking calls made from the chat pipeline (tool functions, chat memory access)
+ * and records which kind of thread they ran on.
+ * <p>
+ * The {@code hbca.blocking.calls} timer is tagged with {@code kind}, {@code name} and
+ * {@code thread}: {@code virtual}, {@code platform}, or {@code non-blocking} for Reactor
+ * event-loop and parallel threads. Any {@code thread=non-blocking} sample means a blocking
+ * call stalled a scheduler that serves other streams; those are also logged.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class BlockingCallMonitor {
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> T record(String kind, String name, Supplier<T> call) {
+        String thread = threadKind();
+        if ("non-blocking".equals(thread)) {
+            log.warn("Blocking {} call '{}' runs on non-blocking thread {}", kind, name, Thread.currentThread().getName());
+        }
+        return Timer.builder("hbca.blocking.calls")
+                .tag("kind", kind)
+                .tag("name", name)
+                .tag("thread", thread)
+                .register(meterRegistry)
+                .record(call);
+    }
+
+    public void record(String kind, String name, Runnable call) {
+        record(kind, name, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private static String threadKind() {
+        if (Thread.currentThread().isVirtual()) {
+            return "virtual";
+        }
+        return Schedulers.isInNonBlockingThread() ? "non-blocking" : "platform";
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
 import java.time.LocalDate;
+import java.util.Map;
 
 import static org.springframework.ai.chat.memory.ChatMemory.CONVERSATION_ID;
 
@@ -52,6 +53,8 @@ public class CustomerSupportAssistant {
                 .user(userMessageContent)
                 .advisors(advisorSpec -> advisorSpec
                         .param(CONVERSATION_ID, chatId))
+                // Lets booking tools attribute their invocations to this conversation.
+                .toolContext(Map.of(CONVERSATION_ID, chatId))
                 .stream().content();
     }
 }
@@ -0,0 +1,177 @@
+package rs.siriusxi.hbca.service.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static org.springframework.ai.chat.memory.ChatMemory.CONVERSATION_ID;
+
+/**
+ * {@link ToolCallingManager} that runs the independent tool calls of one model turn
+ * concurrently.
+ * <p>
+ * The default manager executes the calls of a turn one after another, so a question
+ * about three bookings costs three sequential lookups. Here:
+ * - A turn whose calls are all read-only (e.g. several {@code findBooking}) runs each
+ *   call through the delegate on its own virtual thread; the tool responses are merged
+ *   back into one message in the order the model asked for them.
+ * - A turn with a single call, or with any call that changes a booking, is passed to
+ *   the delegate unchanged, so writes keep the order the model chose.
+ * - At most {@code maxConcurrencyPerConversation} calls of one conversation run at the
+ *   same time; the conversation id is read from the tool context.
+ * - Each concurrent call finds the turn's {@link ParallelToolTurn} in its tool context,
+ *   so tools can share work within the turn.
+ * - A failing call fails the turn, exactly as in sequential execution.
+ * <p>
+ * Metrics: {@code hbca.tools.turns} by {@code mode} ({@code parallel}, {@code sequential}).
+ */
+@Log4j2
+public class ParallelToolCallingManager implements ToolCallingManager {
+
+    private static final String NO_CONVERSATION = "";
+
+    private final ToolCallingManager delegate;
+    private final Set<String> readOnlyTools;
+    private final int maxConcurrencyPerConversation;
+    private final AsyncTaskExecutor executor;
+    private final Cache<String, Semaphore> permits = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+    private final Counter parallelTurns;
+    private final Counter sequentialTurns;
+
+    public ParallelToolCallingManager(ToolCallingManager delegate, Set<String> readOnlyTools,
+                                      int maxConcurrencyPerConversation, AsyncTaskExecutor executor,
+                                      MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.readOnlyTools = Set.copyOf(readOnlyTools);
+        this.maxConcurrencyPerConversation = Math.max(1, maxConcurrencyPerConversation);
+        this.executor = executor;
+        this.parallelTurns = meterRegistry.counter("hbca.tools.turns", "mode", "parallel");
+        this.sequentialTurns = meterRegistry.counter("hbca.tools.turns", "mode", "sequential");
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return delegate.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+                .map(Generation::getOutput)
+                .filter(AssistantMessage::hasToolCalls)
+                .findFirst()
+                .orElse(null);
+        if (assistantMessage == null || assistantMessage.getToolCalls().size() < 2
+                || !assistantMessage.getToolCalls().stream().allMatch(call -> readOnlyTools.contains(call.name()))) {
+            sequentialTurns.increment();
+            return delegate.executeToolCalls(prompt, chatResponse);
+        }
+        parallelTurns.increment();
+
+        List<AssistantMessage.ToolCall> toolCalls = assistantMessage.getToolCalls();
+        Prompt turnPrompt = withTurn(prompt, new ParallelToolTurn(
+                toolCalls.stream().map(AssistantMessage.ToolCall::name).toList()));
+        Semaphore conversationPermits = permits.get(conversationId(prompt),
+                _ -> new Semaphore(maxConcurrencyPerConversation));
+        log.debug("Executing {} tool calls in parallel", toolCalls.size());
+
+        List<Future<ToolExecutionResult>> futures = new ArrayList<>(toolCalls.size());
+        for (AssistantMessage.ToolCall toolCall : toolCalls) {
+            ChatResponse single = new ChatResponse(List.of(new Generation(AssistantMessage.builder()
+                    .content(Objects.requireNonNullElse(assistantMessage.getText(), ""))
+                    .properties(assistantMessage.getMetadata())
+                    .toolCalls(List.of(toolCall))
+                    .build())));
+            futures.add(executor.submit(() -> {
+                conversationPermits.acquire();
+                try {
+                    return delegate.executeToolCalls(turnPrompt, single);
+                } finally {
+                    conversationPermits.release();
+                }
+            }));
+        }
+
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(toolCalls.size());
+        boolean returnDirect = true;
+        for (Future<ToolExecutionResult> future : futures) {
+            ToolExecutionResult result = await(future, futures);
+            if (result.conversationHistory().getLast() instanceof ToolResponseMessage response) {
+                responses.addAll(response.getResponses());
+            }
+            returnDirect &= result.returnDirect();
+        }
+
+        List<Message> history = new ArrayList<>(prompt.copy().getInstructions());
+        history.add(assistantMessage);
+        history.add(ToolResponseMessage.builder().responses(responses).build());
+        return ToolExecutionResult.builder()
+                .conversationHistory(history)
+                .returnDirect(returnDirect)
+                .build();
+    }
+
+    private static Prompt withTurn(Prompt prompt, ParallelToolTurn turn) {
+        if (!(prompt.getOptions() instanceof ToolCallingChatOptions options)) {
+            return prompt;
+        }
+        ToolCallingChatOptions turnOptions = options.copy();
+        Map<String, Object> toolContext = new HashMap<>(Objects.requireNonNullElse(options.getToolContext(), Map.of()));
+        toolContext.put(ParallelToolTurn.TOOL_CONTEXT_KEY, turn);
+        turnOptions.setToolContext(toolContext);
+        return new Prompt(prompt.getInstructions(), turnOptions);
+    }
+
+    private static String conversationId(Prompt prompt) {
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options) {
+            Map<String, Object> toolContext = options.getToolContext();
+            if (toolContext != null && toolContext.get(CONVERSATION_ID) != null) {
+                return toolContext.get(CONVERSATION_ID).toString();
+            }
+        }
+        return NO_CONVERSATION;
+    }
+
+    private static ToolExecutionResult await(Future<ToolExecutionResult> future,
+                                             List<Future<ToolExecutionResult>> all) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            all.forEach(other -> other.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for tool calls", e);
+        } catch (ExecutionException e) {
+            all.forEach(other -> other.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Tool call failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package rs.siriusxi.hbca.service.ai;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.ai.chat.model.ToolContext;
+
+import java.util.List;
+
+/**
+ * The tool calls of one model turn that {@link ParallelToolCallingManager} runs
+ * concurrently, handed to each of them in the tool context.
+ * <p>
+ * Compared by identity, so a tool can group work of the calls of the same turn,
+ * e.g. answer several booking lookups with one query, without mixing turns or
+ * conversations.
+ */
+public final class ParallelToolTurn {
+
+    /**
+     * Tool context key holding the turn; absent for calls executed one at a time
+     */
+    public static final String TOOL_CONTEXT_KEY = "hbca_parallel_turn";
+
+    private final List<String> toolNames;
+
+    ParallelToolTurn(List<String> toolNames) {
+        this.toolNames = List.copyOf(toolNames);
+    }
+
+    public static @Nullable ParallelToolTurn from(ToolContext toolContext) {
+        return toolContext.getContext().get(TOOL_CONTEXT_KEY) instanceof ParallelToolTurn turn ? turn : null;
+    }
+
+    /**
+     * Number of calls to the tool in this turn
+     */
+    public int calls(String toolName) {
+        int calls = 0;
+        for (String name : toolNames) {
+            if (name.equals(toolName)) {
+                calls++;
+            }
+        }
+        return calls;
+    }
+}
@@ -0,0 +1,38 @@
+package rs.siriusxi.hbca.service.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.ai.chat.memory.ChatMemory.CONVERSATION_ID;
+
+/**
+ * Counts booking tool invocations per conversation.
+ * <p>
+ * Advisors compare the count before and after a turn to learn whether the model
+ * touched booking data while answering, e.g. to keep such answers out of caches.
+ * Conversations idle for an hour are forgotten.
+ */
+@Component
+public class ToolInvocationTracker {
+
+    private final Cache<String, AtomicLong> invocations = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    public void recordInvocation(ToolContext toolContext) {
+        Object conversationId = toolContext.getContext().get(CONVERSATION_ID);
+        if (conversationId != null) {
+            invocations.get(conversationId.toString(), _ -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public long invocations(String conversationId) {
+        AtomicLong count = invocations.getIfPresent(conversationId);
+        return count == null ? 0 : count.get();
+    }
+}
@@ -0,0 +1,55 @@
+package rs.siriusxi.hbca.service.ai.admission;
+
+import rs.siriusxi.hbca.config.AdmissionProperties;
+
+/**
+ * Additive-increase/multiplicative-decrease limit of concurrent chat turns.
+ * <p>
+ * Each completed turn reports whether the model answered within the target latency:
+ * - a healthy turn grows the limit by {@code 1 / limit}, i.e. by one per window of turns,
+ * - a slow or failed turn multiplies it by the backoff ratio, at most once per window so
+ *   a burst of slow turns started under the old limit does not collapse it.
+ * <p>
+ * Turns beyond the limit are shed rather than queued; the upstream is already the
+ * bottleneck when the limit is reached.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private final AdmissionProperties.Concurrency properties;
+    private double limit;
+    private int inFlight;
+    private long completed;
+    private long lastBackoff = Long.MIN_VALUE / 2;
+
+    AdaptiveConcurrencyLimit(AdmissionProperties.Concurrency properties) {
+        this.properties = properties;
+        this.limit = Math.clamp(properties.initialLimit(), properties.minLimit(), properties.maxLimit());
+    }
+
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    synchronized void release(boolean healthy) {
+        inFlight--;
+        completed++;
+        if (healthy) {
+            limit = Math.min(properties.maxLimit(), limit + 1 / limit);
+        } else if (completed - lastBackoff >= (int) limit) {
+            limit = Math.max(properties.minLimit(), limit * properties.backoffRatio());
+            lastBackoff = completed;
+        }
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,246 @@
+package rs.siriusxi.hbca.service.ai.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vaadin.hilla.exception.EndpointException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import rs.siriusxi.hbca.config.AdmissionProperties;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether, and when, a chat turn may start streaming.
+ * <p>
+ * Every turn opens a streaming model request plus memory and tool traffic on the JDBC
+ * pool, so a spike of anonymous browser calls would otherwise exhaust both for everyone.
+ * On subscription a turn passes, in order:
+ * - the global token bucket, then the conversation's one; an empty bucket rejects,
+ * - the conversation's lane: one turn in flight per {@code chatId}, up to {@code maxQueued}
+ *   later turns wait in order for at most {@code queueTimeout}, more are rejected,
+ * - the {@link AdaptiveConcurrencyLimit}; a turn over the limit is shed. The limit follows
+ *   the time to first token observed from the model.
+ * <p>
+ * Conversations are keyed by the {@code chatId} the browser sends, so per-conversation limits
+ * are not a per-client limit: a client rotating chat ids is bounded only by the global bucket
+ * and the concurrency limit. Buckets are kept for at most {@code maximumConversations}
+ * conversations, so rotating ids cannot grow them without bound. A lane exists only while
+ * its conversation has a turn running or waiting and is removed once idle, so it is never
+ * evicted under a running turn; new conversations are rejected while
+ * {@code maximumConversations} lanes are active.
+ * <p>
+ * Rejections fail the stream with an {@link EndpointException}, whose message is shown to
+ * the browser. Cancelling a stream, queued or running, frees its place.
+ * <p>
+ * Metrics: {@code hbca.chat.admission.rejected} by {@code reason} (rate, conversation, timeout,
+ * overload), {@code hbca.chat.admission.queued}, {@code hbca.chat.admission.in-flight} and
+ * {@code hbca.chat.admission.limit} (gauges), and {@code hbca.chat.admission.wait} (timer).
+ */
+@Log4j2
+@Service
+public class ChatAdmissionController {
+
+    private final AdmissionProperties properties;
+    private final AdaptiveConcurrencyLimit limit;
+    private final TokenBucket globalRate;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final Cache<String, TokenBucket> conversationRates;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer wait;
+    private final Counter rateRejections;
+    private final Counter conversationRejections;
+    private final Counter timeoutRejections;
+    private final Counter overloadRejections;
+
+    public ChatAdmissionController(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = new AdaptiveConcurrencyLimit(properties.concurrency());
+        this.globalRate = new TokenBucket(properties.rate().globalPerSecond(), properties.rate().globalBurst());
+        this.conversationRates = Caffeine.newBuilder()
+                .maximumSize(properties.maximumConversations())
+                .expireAfterAccess(properties.expireAfter())
+                .build();
+        meterRegistry.gauge("hbca.chat.admission.queued", Tags.empty(), queued);
+        meterRegistry.gauge("hbca.chat.admission.in-flight", Tags.empty(), limit, AdaptiveConcurrencyLimit::inFlight);
+        meterRegistry.gauge("hbca.chat.admission.limit", Tags.empty(), limit, AdaptiveConcurrencyLimit::limit);
+        this.wait = meterRegistry.timer("hbca.chat.admission.wait");
+        this.rateRejections = rejections(meterRegistry, "rate");
+        this.conversationRejections = rejections(meterRegistry, "conversation");
+        this.timeoutRejections = rejections(meterRegistry, "timeout");
+        this.overloadRejections = rejections(meterRegistry, "overload");
+    }
+
+    /**
+     * Runs the turn once admitted; the turn is not subscribed at all when rejected
+     */
+    public Flux<String> admit(String chatId, Supplier<Flux<String>> turn) {
+        if (!properties.enabled()) {
+            return Flux.defer(turn);
+        }
+        return Flux.defer(() -> {
+            // The global bucket goes first, so a flood of new chat ids is rejected before it creates buckets.
+            if (!globalRate.tryConsume() || !conversationRates.get(chatId, _ -> new TokenBucket(
+                    properties.rate().conversationPerSecond(), properties.rate().conversationBurst())).tryConsume()) {
+                rateRejections.increment();
+                return Flux.error(new EndpointException("You are sending messages too quickly, please wait a moment."));
+            }
+            if (lanes.size() >= properties.maximumConversations() && !lanes.containsKey(chatId)) {
+                overloadRejections.increment();
+                return Flux.error(new EndpointException("The assistant is busy right now, please try again in a moment."));
+            }
+            var ticket = new Ticket();
+            long enqueuedAt = System.nanoTime();
+            return Mono.<Void>create(sink -> enter(chatId, ticket, sink))
+                    .timeout(properties.conversation().queueTimeout(), Mono.defer(() -> {
+                        timeoutRejections.increment();
+                        return Mono.error(new EndpointException("The previous message is still being answered, please try again."));
+                    }))
+                    .thenMany(Flux.defer(() -> {
+                        wait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                        return run(turn);
+                    }))
+                    .doFinally(_ -> {
+                        Lane lane = ticket.lane;
+                        if (lane != null) {
+                            lane.leave(ticket);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Enters the conversation's lane; a lane that went idle and was removed meanwhile is
+     * replaced, so all turns of a conversation always share one lane
+     */
+    private void enter(String chatId, Ticket ticket, MonoSink<Void> sink) {
+        while (!lanes.computeIfAbsent(chatId, Lane::new).enter(ticket, sink)) {
+            // The removed lane already left the map, so the next lookup creates a fresh one.
+        }
+    }
+
+    private Flux<String> run(Supplier<Flux<String>> turn) {
+        if (!limit.tryAcquire()) {
+            overloadRejections.increment();
+            return Flux.error(new EndpointException("The assistant is busy right now, please try again in a moment."));
+        }
+        long start = System.nanoTime();
+        long target = properties.concurrency().targetLatency().toNanos();
+        var firstToken = new AtomicBoolean();
+        var healthy = new AtomicBoolean(true);
+        var released = new AtomicBoolean();
+        return Flux.defer(turn)
+                .doOnNext(_ -> {
+                    if (firstToken.compareAndSet(false, true) && System.nanoTime() - start > target) {
+                        healthy.set(false);
+                    }
+                })
+                .doOnError(_ -> healthy.set(false))
+                .doFinally(_ -> {
+                    if (released.compareAndSet(false, true)) {
+                        limit.release(healthy.get() && (firstToken.get() || System.nanoTime() - start <= target));
+                    }
+                });
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return meterRegistry.counter("hbca.chat.admission.rejected", "reason", reason);
+    }
+
+    /**
+     * One queued or running turn of a conversation
+     */
+    private static final class Ticket {
+        private @Nullable MonoSink<Void> sink;
+        private volatile @Nullable Lane lane;
+        private boolean granted;
+    }
+
+    /**
+     * Turns of one conversation: one running, the rest waiting in arrival order.
+     * Removed from {@code lanes} once idle and never used again afterwards.
+     */
+    private final class Lane {
+
+        private final String chatId;
+        private final Deque<Ticket> waiting = new ArrayDeque<>();
+        private boolean busy;
+        private boolean removed;
+
+        Lane(String chatId) {
+            this.chatId = chatId;
+        }
+
+        /**
+         * Grants, queues or rejects the ticket; false if the lane was already removed
+         */
+        boolean enter(Ticket ticket, MonoSink<Void> sink) {
+            boolean grant;
+            synchronized (this) {
+                if (removed) {
+                    return false;
+                }
+                ticket.sink = sink;
+                ticket.lane = this;
+                if (!busy) {
+                    busy = true;
+                    ticket.granted = true;
+                    grant = true;
+                } else if (waiting.size() < properties.conversation().maxQueued()) {
+                    waiting.addLast(ticket);
+                    queued.incrementAndGet();
+                    grant = false;
+                } else {
+                    conversationRejections.increment();
+                    sink.error(new EndpointException("Please wait for the answers to your previous messages."));
+                    return true;
+                }
+            }
+            if (grant) {
+                sink.success();
+            }
+            return true;
+        }
+
+        /**
+         * Withdraws a waiting ticket, or passes the lane on to the next one after a granted ticket
+         */
+        void leave(Ticket ticket) {
+            Ticket next;
+            synchronized (this) {
+                if (waiting.remove(ticket)) {
+                    queued.decrementAndGet();
+                    return;
+                }
+                if (!ticket.granted) {
+                    return;
+                }
+                ticket.granted = false;
+                next = waiting.pollFirst();
+                if (next == null) {
+                    busy = false;
+                    removed = true;
+                    lanes.remove(chatId, this);
+                    return;
+                }
+                queued.decrementAndGet();
+                next.granted = true;
+            }
+            next.sink.success();
+        }
+    }
+}
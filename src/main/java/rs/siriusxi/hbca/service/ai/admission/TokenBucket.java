@@ -0,0 +1,30 @@
+package rs.siriusxi.hbca.service.ai.admission;
+
+/**
+ * Token bucket refilled continuously from {@link System#nanoTime()}
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double perSecond, int burst) {
+        this.capacity = Math.max(1, burst);
+        this.tokensPerNano = perSecond / 1e9;
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    synchronized boolean tryConsume() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,45 @@
+package rs.siriusxi.hbca.service.ai.cache;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} decorator that answers single-text embeddings, i.e. the
+ * user questions embedded by RAG retrieval, from an {@link EmbeddingCache}.
+ * <p>
+ * Batch and document embeddings (ingestion) go straight to the delegate so they
+ * never evict hot questions. The delegate's dimensions are checked on every hit,
+ * so an entry persisted for another model is re-embedded.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingCache cache;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, EmbeddingCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return cache.get(text, delegate.dimensions(), delegate::embed);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,163 @@
+package rs.siriusxi.hbca.service.ai.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import rs.siriusxi.hbca.config.EmbeddingCacheProperties;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of query embeddings keyed on normalized question text.
+ * <p>
+ * Support traffic repeats the same questions with small variations in case,
+ * spacing and punctuation; normalizing the text before lookup lets all of them
+ * share one entry and skip the embedding round trip.
+ * <p>
+ * Features:
+ * - Size- and TTL-based eviction (Caffeine).
+ * - Hit, miss and eviction metrics under the {@code hbca.rag.query.embeddings} cache name.
+ * - Optional persistent tier: a small binary file loaded at startup and written
+ *   at shutdown. Each entry keeps its expiry time, so a restart does not extend
+ *   the TTL of an entry that was written before it.
+ * - Entries whose dimensions do not match the model (persisted before a model
+ *   change) are dropped and re-embedded on first use.
+ */
+@Log4j2
+public class EmbeddingCache implements InitializingBean, DisposableBean {
+
+    private static final String CACHE_NAME = "hbca.rag.query.embeddings";
+    private static final int FILE_MAGIC = 0x48514532; // "HQE2", entries carry their expiry time
+    /* Long messages rarely repeat verbatim; they are embedded without occupying the cache. */
+    private static final int MAX_KEY_LENGTH = 2_000;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?!.,;:]+$");
+
+    private final EmbeddingCacheProperties properties;
+    private final Cache<String, float[]> cache;
+    private final VarExpiration<String, float[]> expiration;
+
+    public EmbeddingCache(EmbeddingCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfter(Expiry.<String, float[]>writing((_, _) -> properties.expireAfter()))
+                .recordStats()
+                .build();
+        this.expiration = cache.policy().expireVariably().orElseThrow();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Lower-cases, collapses whitespace and strips trailing punctuation
+     */
+    static String normalize(String text) {
+        String collapsed = WHITESPACE.matcher(text.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(collapsed).replaceAll("");
+    }
+
+    /**
+     * Returns the cached embedding of the normalized text, computing it with the
+     * loader on a miss or when the cached one has other than the expected dimensions.
+     * The loader receives the normalized text.
+     */
+    public float[] get(String text, int dimensions, Function<String, float[]> loader) {
+        String key = normalize(text);
+        if (key.length() > MAX_KEY_LENGTH) {
+            return loader.apply(key);
+        }
+        float[] embedding = cache.get(key, loader);
+        if (embedding.length != dimensions) {
+            cache.asMap().remove(key, embedding);
+            embedding = cache.get(key, loader);
+        }
+        return embedding.clone();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Path file = properties.persistentFile();
+        if (file == null || Files.notExists(file)) {
+            return;
+        }
+        int loaded = 0;
+        long now = System.currentTimeMillis();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                log.warn("Ignoring query embedding cache file '{}' with unknown format", file.getFileName());
+                return;
+            }
+            while (true) {
+                String key = in.readUTF();
+                long expiresAt = in.readLong();
+                float[] embedding = new float[in.readInt()];
+                for (int i = 0; i < embedding.length; i++) {
+                    embedding[i] = in.readFloat();
+                }
+                if (expiresAt > now) {
+                    expiration.put(key, embedding, Duration.ofMillis(expiresAt - now));
+                    loaded++;
+                }
+            }
+        } catch (EOFException _) {
+            log.info("Loaded {} query embeddings from '{}'", loaded, file.getFileName());
+        } catch (IOException e) {
+            log.warn("Failed to load query embedding cache from '{}', starting cold", file.getFileName(), e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Path file = properties.persistentFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                long now = System.currentTimeMillis();
+                for (var entry : cache.asMap().entrySet()) {
+                    var remaining = expiration.getExpiresAfter(entry.getKey());
+                    if (remaining.isEmpty()) {
+                        continue;
+                    }
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(now + remaining.get().toMillis());
+                    out.writeInt(entry.getValue().length);
+                    for (float value : entry.getValue()) {
+                        out.writeFloat(value);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Saved {} query embeddings to '{}'", cache.estimatedSize(), file.getFileName());
+        } catch (IOException e) {
+            log.warn("Failed to save query embedding cache to '{}'", file.getFileName(), e);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package rs.siriusxi.hbca.service.ai.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.jspecify.annotations.Nullable;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.embedding.EmbeddingModel;
+import reactor.core.publisher.Flux;
+import rs.siriusxi.hbca.config.ResponseCacheProperties;
+import rs.siriusxi.hbca.service.ai.ToolInvocationTracker;
+import rs.siriusxi.hbca.service.ai.rag.VectorMath;
+
+import java.util.List;
+
+import static org.springframework.ai.chat.memory.ChatMemory.CONVERSATION_ID;
+
+/**
+ * Opt-in advisor that replays earlier answers to semantically equivalent questions.
+ * <p>
+ * Policy questions ("can I cancel for free?") are answered from the booking terms
+ * alone, so the same answer fits every customer who asks them. The advisor embeds
+ * the question (through the query {@link EmbeddingCache}, so retrieval re-uses the
+ * embedding), compares it with previously answered questions and, above the
+ * configured cosine similarity, returns the cached answer without calling the model.
+ * <p>
+ * Rules:
+ * - Only the first turn of a conversation is looked up or cached. Later turns carry the
+ *   chat memory in their prompt, so their answers may depend on that customer's
+ *   context ("what's my booking date?", "yes, go ahead") and must not be replayed to
+ *   anyone else. The conversation history is read from the {@link ChatMemory}, which
+ *   at this point already holds the current question.
+ * - A turn during which any booking tool was invoked for the conversation, as
+ *   reported by the {@link ToolInvocationTracker}, is never cached: its answer
+ *   depends on booking data.
+ * - Failed, cancelled or blank answers are never cached.
+ * - Entries expire after {@code expireAfter}, so updated booking terms take effect.
+ * <p>
+ * Ordered right after the chat memory advisor, so a replayed answer is still
+ * recorded in the conversation history, and before retrieval, so a hit skips the
+ * vector search too. The lookup is a linear scan over unit vectors, which is cheap
+ * for the few thousand entries this cache is sized for.
+ * <p>
+ * Metrics: {@code hbca.chat.response-cache} by {@code result} (hit, miss, stored,
+ * skipped) plus Caffeine statistics under {@code hbca.chat.responses}.
+ */
+@Log4j2
+public class SemanticResponseCacheAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private static final String CACHE_NAME = "hbca.chat.responses";
+    private static final int ORDER = Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 100;
+
+    private record CachedAnswer(float[] unitQuestion, String answer) {
+    }
+
+    /* Outcome of a lookup; a miss keeps the key and embedding for storing the answer later. */
+    private record Lookup(@Nullable String key, float @Nullable [] unitQuestion, @Nullable String answer) {
+    }
+
+    private static final Lookup NONE = new Lookup(null, null, null);
+
+    private final EmbeddingModel queryEmbeddingModel;
+    private final ChatMemory chatMemory;
+    private final ToolInvocationTracker toolInvocationTracker;
+    private final float similarityThreshold;
+    private final Cache<String, CachedAnswer> answers;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter stored;
+    private final Counter skipped;
+
+    public SemanticResponseCacheAdvisor(EmbeddingModel queryEmbeddingModel,
+                                        ChatMemory chatMemory,
+                                        ToolInvocationTracker toolInvocationTracker,
+                                        ResponseCacheProperties properties,
+                                        MeterRegistry meterRegistry) {
+        this.queryEmbeddingModel = queryEmbeddingModel;
+        this.chatMemory = chatMemory;
+        this.toolInvocationTracker = toolInvocationTracker;
+        this.similarityThreshold = (float) properties.similarityThreshold();
+        this.answers = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfter())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, answers, CACHE_NAME);
+        this.hits = meterRegistry.counter("hbca.chat.response-cache", "result", "hit");
+        this.misses = meterRegistry.counter("hbca.chat.response-cache", "result", "miss");
+        this.stored = meterRegistry.counter("hbca.chat.response-cache", "result", "stored");
+        this.skipped = meterRegistry.counter("hbca.chat.response-cache", "result", "skipped");
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        Lookup lookup = lookup(request);
+        if (lookup.answer() != null) {
+            return replay(request, lookup.answer());
+        }
+        long toolCallsBefore = toolCalls(request);
+        ChatClientResponse response = chain.nextCall(request);
+        store(request, lookup, toolCallsBefore, textOf(response));
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+            Lookup lookup = lookup(request);
+            if (lookup.answer() != null) {
+                return Flux.just(replay(request, lookup.answer()));
+            }
+            long toolCallsBefore = toolCalls(request);
+            var answer = new StringBuilder();
+            return chain.nextStream(request)
+                    .doOnNext(response -> answer.append(textOf(response)))
+                    .doOnComplete(() -> store(request, lookup, toolCallsBefore, answer.toString()));
+        });
+    }
+
+    public void invalidateAll() {
+        answers.invalidateAll();
+    }
+
+    private Lookup lookup(ChatClientRequest request) {
+        String question = request.prompt().getUserMessage().getText();
+        if (question == null || question.isBlank()) {
+            return NONE;
+        }
+        if (hasHistory(request)) {
+            skipped.increment();
+            return NONE;
+        }
+        String key = EmbeddingCache.normalize(question);
+        CachedAnswer exact = answers.getIfPresent(key);
+        if (exact != null) {
+            hits.increment();
+            return new Lookup(key, exact.unitQuestion(), exact.answer());
+        }
+        float[] unitQuestion = VectorMath.normalize(queryEmbeddingModel.embed(question).clone());
+        CachedAnswer best = null;
+        float bestSimilarity = similarityThreshold;
+        for (CachedAnswer candidate : answers.asMap().values()) {
+            if (candidate.unitQuestion().length != unitQuestion.length) {
+                continue;
+            }
+            float similarity = VectorMath.dot(candidate.unitQuestion(), 0, unitQuestion, 0, unitQuestion.length);
+            if (similarity >= bestSimilarity) {
+                bestSimilarity = similarity;
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            misses.increment();
+            return new Lookup(key, unitQuestion, null);
+        }
+        hits.increment();
+        log.debug("Replaying cached answer for a question with similarity {}", bestSimilarity);
+        return new Lookup(key, unitQuestion, best.answer());
+    }
+
+    private void store(ChatClientRequest request, Lookup lookup, long toolCallsBefore, @Nullable String answer) {
+        if (lookup.key() == null || lookup.unitQuestion() == null || answer == null || answer.isBlank()) {
+            return;
+        }
+        if (toolCalls(request) != toolCallsBefore) {
+            skipped.increment();
+            return;
+        }
+        answers.put(lookup.key(), new CachedAnswer(lookup.unitQuestion(), answer));
+        stored.increment();
+    }
+
+    /**
+     * Whether the conversation has messages besides the current question; a turn
+     * without a conversation id is treated as having history
+     */
+    private boolean hasHistory(ChatClientRequest request) {
+        Object conversationId = request.context().get(CONVERSATION_ID);
+        return conversationId == null || chatMemory.get(conversationId.toString()).size() > 1;
+    }
+
+    private long toolCalls(ChatClientRequest request) {
+        Object conversationId = request.context().get(CONVERSATION_ID);
+        return conversationId == null ? 0 : toolInvocationTracker.invocations(conversationId.toString());
+    }
+
+    private static ChatClientResponse replay(ChatClientRequest request, String answer) {
+        var message = AssistantMessage.builder().content(answer).build();
+        return ChatClientResponse.builder()
+                .chatResponse(new ChatResponse(List.of(new Generation(message))))
+                .context(request.context())
+                .build();
+    }
+
+    private static String textOf(@Nullable ChatClientResponse response) {
+        if (response == null || response.chatResponse() == null || response.chatResponse().getResult() == null) {
+            return "";
+        }
+        String text = response.chatResponse().getResult().getOutput().getText();
+        return text == null ? "" : text;
+    }
+}
@@ -0,0 +1,10 @@
+package rs.siriusxi.hbca.service.ai.memory;
+
+import java.util.List;
+
+/**
+ * Published by {@link ChatMemoryRetention} once the removal of a batch of idle
+ * conversations has committed, so in-memory copies of them are dropped too.
+ */
+public record ChatConversationsRemovedEvent(List<String> conversationIds) {
+}
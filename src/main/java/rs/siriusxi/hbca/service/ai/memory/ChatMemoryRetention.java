@@ -0,0 +1,126 @@
+package rs.siriusxi.hbca.service.ai.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.siriusxi.hbca.config.ChatMemoryProperties;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Background job removing conversations idle for longer than the time to live from
+ * {@code spring_ai_chat_memory} and {@code chat_memory_summary}.
+ * <p>
+ * Nothing else ever deletes a finished conversation, so without it the table, its
+ * {@code (conversation_id, timestamp)} index and the message bodies grow forever. Per run:
+ * - Conversations whose newest message is older than {@code timeToLive} are picked
+ *   {@code batchSize} at a time, with a keyset cursor over the conversation id that
+ *   continues where the previous batch ended, so a run walks the table once.
+ * - Each batch is optionally copied to {@code chat_memory_archive}, then its messages and
+ *   summaries are deleted in one short transaction, so locks are held briefly.
+ * - After each batch commits, a {@link ChatConversationsRemovedEvent} drops the removed
+ *   conversations from the write-behind and summary caches.
+ * - The job pauses {@code batchPause} between batches and stops after {@code maxBatches};
+ *   a backlog is worked off over several runs instead of saturating the chat memory pool.
+ * <p>
+ * Active conversations are not touched: their newest message is younger than
+ * {@code expireAfterAccess}, which the time to live must exceed.
+ * <p>
+ * Metrics: {@code hbca.chat.memory.retention.conversations}, {@code .rows} and {@code .bytes}
+ * (content bytes reclaimed), by {@code action} ({@code archived}, {@code deleted}), and
+ * {@code hbca.chat.memory.retention.run} (timer).
+ */
+@Log4j2
+public class ChatMemoryRetention {
+
+    private final ChatMessageStore messageStore;
+    private final ChatSummaryStore summaryStore;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChatMemoryProperties.Retention properties;
+    private final String action;
+    private final Counter conversations;
+    private final Counter rows;
+    private final Counter bytes;
+    private final Timer runTimer;
+
+    public ChatMemoryRetention(ChatMessageStore messageStore, ChatSummaryStore summaryStore,
+                               TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher,
+                               ChatMemoryProperties properties, MeterRegistry meterRegistry) {
+        if (properties.retention().timeToLive().compareTo(properties.expireAfterAccess()) <= 0) {
+            throw new IllegalArgumentException("hbca.ai.memory.retention.time-to-live (%s) must exceed expire-after-access (%s)"
+                    .formatted(properties.retention().timeToLive(), properties.expireAfterAccess()));
+        }
+        this.messageStore = messageStore;
+        this.summaryStore = summaryStore;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties.retention();
+        this.action = this.properties.archive() ? "archived" : "deleted";
+        this.conversations = meterRegistry.counter("hbca.chat.memory.retention.conversations", "action", action);
+        this.rows = meterRegistry.counter("hbca.chat.memory.retention.rows", "action", action);
+        this.bytes = meterRegistry.counter("hbca.chat.memory.retention.bytes", "action", action);
+        this.runTimer = meterRegistry.timer("hbca.chat.memory.retention.run");
+    }
+
+    @Scheduled(initialDelayString = "${hbca.ai.memory.retention.interval:1h}",
+            fixedDelayString = "${hbca.ai.memory.retention.interval:1h}")
+    public void run() {
+        runTimer.record(() -> {
+            Instant cutoff = Instant.now().minus(properties.timeToLive());
+            int removed = 0;
+            String cursor = "";
+            for (int batch = 0; batch < properties.maxBatches(); batch++) {
+                List<String> expired = messageStore.idleConversationIds(cursor, cutoff, properties.batchSize());
+                if (expired.isEmpty()) {
+                    break;
+                }
+                try {
+                    removed += remove(expired);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to remove {} expired conversations, retrying on the next run", expired.size(), e);
+                    break;
+                }
+                cursor = expired.getLast();
+                if (expired.size() < properties.batchSize() || !pause()) {
+                    break;
+                }
+            }
+            if (removed > 0) {
+                log.info("Chat memory retention {} {} conversations idle since before {}", action, removed, cutoff);
+            }
+        });
+    }
+
+    private int remove(List<String> expired) {
+        ChatMessageStore.Footprint footprint = transactionTemplate.execute(_ -> {
+            ChatMessageStore.Footprint measured = messageStore.footprint(expired);
+            if (properties.archive()) {
+                messageStore.archive(expired, Instant.now());
+            }
+            messageStore.deleteConversations(expired);
+            summaryStore.delete(expired);
+            return measured;
+        });
+        eventPublisher.publishEvent(new ChatConversationsRemovedEvent(List.copyOf(expired)));
+        conversations.increment(expired.size());
+        rows.increment(footprint.rows());
+        bytes.increment(footprint.bytes());
+        return expired.size();
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.batchPause());
+            return true;
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
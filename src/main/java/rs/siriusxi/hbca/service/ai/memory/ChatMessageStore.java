@@ -0,0 +1,174 @@
+package rs.siriusxi.hbca.service.ai.memory;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Plain JDBC access to the {@code spring_ai_chat_memory} table, in the row format of
+ * Spring AI's {@code JdbcChatMemoryRepository} so both can read each other's data.
+ * <p>
+ * Unlike that repository, which rewrites a whole conversation on every turn, this
+ * store appends rows and trims the oldest ones by timestamp, and batches writes of
+ * many conversations into one statement.
+ * <p>
+ * Message bodies go through the {@link MessageCodec}; compressed bodies are kept in
+ * {@code content_compressed}, which that repository does not read.
+ */
+public class ChatMessageStore {
+
+    private static final String SELECT_IDS = "SELECT DISTINCT conversation_id FROM spring_ai_chat_memory";
+    private static final String SELECT_MESSAGES = """
+            SELECT content, content_compressed, type, timestamp FROM spring_ai_chat_memory
+            WHERE conversation_id = ? ORDER BY timestamp""";
+    private static final String INSERT = """
+            INSERT INTO spring_ai_chat_memory (conversation_id, content, content_compressed, type, timestamp)
+            VALUES (?, ?, ?, ?, ?)""";
+    private static final String DELETE_BEFORE =
+            "DELETE FROM spring_ai_chat_memory WHERE conversation_id = ? AND timestamp < ?";
+    private static final String DELETE_ALL = "DELETE FROM spring_ai_chat_memory WHERE conversation_id = ?";
+    private static final String SELECT_COMPRESSED =
+            "SELECT 1 FROM spring_ai_chat_memory WHERE content_compressed IS NOT NULL LIMIT 1";
+    private static final String SELECT_IDLE = """
+            SELECT conversation_id FROM spring_ai_chat_memory
+            WHERE conversation_id > ?
+            GROUP BY conversation_id HAVING MAX(timestamp) < ?
+            ORDER BY conversation_id LIMIT ?""";
+    private static final String MEASURE = """
+            SELECT COUNT(*), COALESCE(SUM(OCTET_LENGTH(content) + COALESCE(OCTET_LENGTH(content_compressed), 0)), 0)
+            FROM spring_ai_chat_memory
+            WHERE conversation_id IN (%s)""";
+    private static final String ARCHIVE = """
+            INSERT INTO chat_memory_archive (conversation_id, content, content_compressed, type, timestamp, archived_at)
+            SELECT conversation_id, content, content_compressed, type, timestamp, ? FROM spring_ai_chat_memory
+            WHERE conversation_id IN (%s)""";
+    private static final String DELETE_CONVERSATIONS = "DELETE FROM spring_ai_chat_memory WHERE conversation_id IN (%s)";
+
+    /**
+     * Rows and content bytes of a set of conversations
+     */
+    record Footprint(long rows, long bytes) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageCodec codec;
+
+    public ChatMessageStore(JdbcTemplate jdbcTemplate, MessageCodec codec) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.codec = codec;
+    }
+
+    /**
+     * Whether any stored message body is compressed, i.e. unreadable without this store
+     */
+    public boolean hasCompressedMessages() {
+        return !jdbcTemplate.queryForList(SELECT_COMPRESSED, Integer.class).isEmpty();
+    }
+
+    List<String> conversationIds() {
+        return jdbcTemplate.queryForList(SELECT_IDS, String.class);
+    }
+
+    List<StoredMessage> load(String conversationId) {
+        return jdbcTemplate.query(SELECT_MESSAGES, (rs, _) -> new StoredMessage(
+                toMessage(codec.decode(rs.getString("content"), rs.getBytes("content_compressed")),
+                        MessageType.valueOf(rs.getString("type"))),
+                rs.getTimestamp("timestamp").toInstant()), conversationId);
+    }
+
+    /**
+     * Inserts the rows of any number of conversations in one JDBC batch
+     */
+    void append(Map<String, List<StoredMessage>> rowsByConversation) {
+        List<Object[]> rows = rowsByConversation.entrySet().stream()
+                .flatMap(entry -> entry.getValue().stream().map(row -> {
+                    MessageCodec.Encoded body = codec.encode(Objects.requireNonNullElse(row.message().getText(), ""));
+                    return new Object[]{
+                            entry.getKey(),
+                            body.content(),
+                            body.compressed(),
+                            row.message().getMessageType().name(),
+                            Timestamp.from(row.timestamp())};
+                }))
+                .toList();
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+        }
+    }
+
+    /**
+     * Deletes, per conversation, the rows older than the given timestamp
+     */
+    void deleteBefore(Map<String, Instant> oldestRetained) {
+        if (!oldestRetained.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_BEFORE, oldestRetained.entrySet().stream()
+                    .map(entry -> new Object[]{entry.getKey(), Timestamp.from(entry.getValue())})
+                    .toList());
+        }
+    }
+
+    void delete(Collection<String> conversationIds) {
+        if (!conversationIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_ALL, conversationIds.stream().map(id -> new Object[]{id}).toList());
+        }
+    }
+
+    /**
+     * Keyset page of the conversations after {@code afterConversationId} whose newest message
+     * is older than the cutoff, ordered by id; walks the {@code (conversation_id, timestamp)}
+     * index from the cursor instead of grouping the whole table for every page
+     */
+    List<String> idleConversationIds(String afterConversationId, Instant cutoff, int limit) {
+        return jdbcTemplate.queryForList(SELECT_IDLE, String.class, afterConversationId, Timestamp.from(cutoff), limit);
+    }
+
+    Footprint footprint(List<String> conversationIds) {
+        return jdbcTemplate.queryForObject(MEASURE.formatted(placeholders(conversationIds)),
+                (rs, _) -> new Footprint(rs.getLong(1), rs.getLong(2)), conversationIds.toArray());
+    }
+
+    /**
+     * Copies every message of the conversations to {@code chat_memory_archive}
+     */
+    int archive(List<String> conversationIds, Instant archivedAt) {
+        List<Object> args = new ArrayList<>(conversationIds.size() + 1);
+        args.add(Timestamp.from(archivedAt));
+        args.addAll(conversationIds);
+        return jdbcTemplate.update(ARCHIVE.formatted(placeholders(conversationIds)), args.toArray());
+    }
+
+    /**
+     * Deletes every message of the conversations in one statement
+     */
+    int deleteConversations(List<String> conversationIds) {
+        return jdbcTemplate.update(DELETE_CONVERSATIONS.formatted(placeholders(conversationIds)),
+                conversationIds.toArray());
+    }
+
+    static String placeholders(List<String> values) {
+        return String.join(", ", Collections.nCopies(values.size(), "?"));
+    }
+
+    private static Message toMessage(String content, MessageType type) {
+        return switch (type) {
+            case USER -> UserMessage.builder().text(content).build();
+            case ASSISTANT -> AssistantMessage.builder().content(content).build();
+            case SYSTEM -> SystemMessage.builder().text(content).build();
+            // Tool responses are not persisted with their payload, same as JdbcChatMemoryRepository.
+            case TOOL -> ToolResponseMessage.builder().responses(List.of()).build();
+        };
+    }
+}
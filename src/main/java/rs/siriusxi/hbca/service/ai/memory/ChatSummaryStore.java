@@ -0,0 +1,50 @@
+package rs.siriusxi.hbca.service.ai.memory;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Plain JDBC access to the {@code chat_memory_summary} table holding one rolling
+ * summary per conversation.
+ */
+public class ChatSummaryStore {
+
+    private static final String SELECT = "SELECT summary FROM chat_memory_summary WHERE conversation_id = ?";
+    private static final String UPDATE =
+            "UPDATE chat_memory_summary SET summary = ?, updated_at = ? WHERE conversation_id = ?";
+    private static final String INSERT =
+            "INSERT INTO chat_memory_summary (conversation_id, summary, updated_at) VALUES (?, ?, ?)";
+    private static final String DELETE = "DELETE FROM chat_memory_summary WHERE conversation_id = ?";
+    private static final String DELETE_ALL = "DELETE FROM chat_memory_summary WHERE conversation_id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ChatSummaryStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Nullable String load(String conversationId) {
+        List<String> summaries = jdbcTemplate.queryForList(SELECT, String.class, conversationId);
+        return summaries.isEmpty() ? null : summaries.getFirst();
+    }
+
+    void save(String conversationId, String summary) {
+        Timestamp now = Timestamp.from(Instant.now());
+        if (jdbcTemplate.update(UPDATE, summary, now, conversationId) == 0) {
+            jdbcTemplate.update(INSERT, conversationId, summary, now);
+        }
+    }
+
+    void delete(String conversationId) {
+        jdbcTemplate.update(DELETE, conversationId);
+    }
+
+    int delete(List<String> conversationIds) {
+        return jdbcTemplate.update(DELETE_ALL.formatted(ChatMessageStore.placeholders(conversationIds)),
+                conversationIds.toArray());
+    }
+}
@@ -0,0 +1,156 @@
+package rs.siriusxi.hbca.service.ai.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.jspecify.annotations.Nullable;
+import org.springframework.core.io.Resource;
+import rs.siriusxi.hbca.config.ChatMemoryProperties;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encoding of chat memory message bodies: plain text in {@code content}, or a zlib
+ * stream in {@code content_compressed} with an empty {@code content}.
+ * <p>
+ * Behaviour:
+ * - With compression enabled, bodies of at least {@code minSize} bytes are deflated
+ *   against a preset dictionary of phrases typical for support conversations (booking
+ *   details, fees, policy sentences), which is what makes short messages compress.
+ *   A body that would not shrink is stored as text.
+ * - The zlib header names the dictionary by its Adler-32, so a row is only decoded with
+ *   the dictionary it was written with; rows written with another dictionary fail loudly.
+ * - Decoding works whether or not compression is enabled, so it can be switched off
+ *   without rewriting stored rows, as long as the write-behind repository stays on:
+ *   Spring AI's {@code JdbcChatMemoryRepository} reads only {@code content}, which is
+ *   empty for compressed rows, so startup is refused with write-behind off while any
+ *   compressed row exists.
+ * <p>
+ * The dictionary is trained offline from sample traffic with {@code MessageDictionaryTrainer}
+ * (perf sources). Deflater and Inflater are created per call: they hold native memory and
+ * are cheap to create compared with a JDBC round trip.
+ * <p>
+ * Metrics: {@code hbca.chat.memory.codec.bytes} by {@code form} ({@code raw}: UTF-8 size of
+ * written bodies, {@code stored}: size written to the database).
+ */
+@Log4j2
+public class MessageCodec {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * A body as stored: {@code compressed} is null for plain text
+     */
+    public record Encoded(String content, byte @Nullable [] compressed) {
+    }
+
+    private final boolean enabled;
+    private final int minSize;
+    private final int level;
+    private final byte @Nullable [] dictionary;
+    private final long dictionaryId;
+    private final Counter rawBytes;
+    private final Counter storedBytes;
+
+    public MessageCodec(ChatMemoryProperties.Compression properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.minSize = properties.minSize();
+        this.level = properties.level();
+        this.dictionary = read(properties.dictionary());
+        this.dictionaryId = dictionary == null ? 0 : adler32(dictionary);
+        this.rawBytes = meterRegistry.counter("hbca.chat.memory.codec.bytes", "form", "raw");
+        this.storedBytes = meterRegistry.counter("hbca.chat.memory.codec.bytes", "form", "stored");
+        if (enabled) {
+            log.info("Chat memory compression enabled, {}", dictionary == null
+                    ? "without a dictionary" : "with a %d byte dictionary".formatted(dictionary.length));
+        }
+    }
+
+    public Encoded encode(String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        rawBytes.increment(raw.length);
+        if (enabled && raw.length >= minSize) {
+            byte[] compressed = deflate(raw);
+            if (compressed.length < raw.length) {
+                storedBytes.increment(compressed.length);
+                return new Encoded("", compressed);
+            }
+        }
+        storedBytes.increment(raw.length);
+        return new Encoded(text, null);
+    }
+
+    public String decode(String content, byte @Nullable [] compressed) {
+        return compressed == null ? content : inflate(compressed);
+    }
+
+    private byte[] deflate(byte[] raw) {
+        var deflater = new Deflater(level);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(raw);
+            deflater.finish();
+            var out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private String inflate(byte[] compressed) {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            var out = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsDictionary()) {
+                    if (dictionary == null || inflater.getAdler() != dictionaryId) {
+                        throw new IllegalStateException("Chat memory message was compressed with unknown dictionary %08x"
+                                .formatted(inflater.getAdler()));
+                    }
+                    inflater.setDictionary(dictionary);
+                } else if (n == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Truncated compressed chat memory message");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed chat memory message", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte @Nullable [] read(@Nullable Resource resource) {
+        if (resource == null || !resource.exists()) {
+            return null;
+        }
+        try {
+            return resource.getContentAsByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read chat memory dictionary " + resource, e);
+        }
+    }
+
+    private static long adler32(byte[] bytes) {
+        var adler = new Adler32();
+        adler.update(bytes);
+        return adler.getValue();
+    }
+}
@@ -0,0 +1,65 @@
+package rs.siriusxi.hbca.service.ai.memory;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import rs.siriusxi.hbca.service.ai.BlockingCallMonitor;
+import rs.siriusxi.hbca.service.ai.observation.ChatStageObserver;
+
+import java.util.List;
+
+/**
+ * {@link ChatMemory} decorator reporting every access to the {@link BlockingCallMonitor},
+ * and loads and writes as {@code memory.load} / {@code memory.write} chat stages.
+ * Destroying it destroys the delegate, which is not a bean of its own, and conversations
+ * removed by {@link ChatMemoryRetention} are passed on to it the same way.
+ */
+public class MonitoredChatMemory implements ChatMemory, DisposableBean {
+
+    private static final String KIND = "memory";
+
+    private final ChatMemory delegate;
+    private final BlockingCallMonitor monitor;
+    private final ChatStageObserver stageObserver;
+
+    public MonitoredChatMemory(ChatMemory delegate, BlockingCallMonitor monitor, ChatStageObserver stageObserver) {
+        this.delegate = delegate;
+        this.monitor = monitor;
+        this.stageObserver = stageObserver;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        stageObserver.observe("memory.write", stageObserver.tokens(messages), () -> {
+            monitor.record(KIND, "add", () -> delegate.add(conversationId, messages));
+            return null;
+        });
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        return stageObserver.observe("memory.load",
+                () -> monitor.record(KIND, "get", () -> delegate.get(conversationId)),
+                stageObserver::tokens);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        monitor.record(KIND, "clear", () -> delegate.clear(conversationId));
+    }
+
+    @EventListener
+    public void onConversationsRemoved(ChatConversationsRemovedEvent event) {
+        if (delegate instanceof SummarizingChatMemory summarizing) {
+            summarizing.onConversationsRemoved(event);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (delegate instanceof DisposableBean disposable) {
+            disposable.destroy();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package rs.siriusxi.hbca.service.ai.memory;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.time.Instant;
+
+/**
+ * A chat memory row: the message and the timestamp that orders it within its conversation
+ */
+record StoredMessage(Message message, Instant timestamp) {
+}
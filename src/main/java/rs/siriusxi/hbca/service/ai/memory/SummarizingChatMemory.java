@@ -0,0 +1,272 @@
+package rs.siriusxi.hbca.service.ai.memory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.jspecify.annotations.Nullable;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.siriusxi.hbca.config.ChatMemoryProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ChatMemory} that bounds the history sent to the model by tokens instead of
+ * message count.
+ * <p>
+ * Behaviour:
+ * - Messages are appended to the {@link ChatMemoryRepository} as they arrive.
+ * - Once a conversation exceeds {@code tokenBudget}, its older turns are folded into a
+ *   rolling summary by the chat model on a virtual thread, off the request path. The
+ *   summary is persisted in {@code chat_memory_summary} and the folded messages are
+ *   removed from the repository in the same transaction, so a crash cannot lose them
+ *   (behind the write-behind repository the removal is flushed later, so a crash may keep
+ *   both); the most recent {@code recentTokens} stay verbatim.
+ * - {@link #get(String)} returns the summary followed by the newest messages that fit
+ *   in the budget, so the prompt stays bounded even while a summary is being computed.
+ * <p>
+ * The summary is returned as an assistant message because
+ * {@code PromptChatMemoryAdvisor} only renders user and assistant messages.
+ * <p>
+ * Metrics: {@code hbca.chat.memory.tokens} (memory tokens per prompt),
+ * {@code hbca.chat.memory.summarize} (timer) and {@code hbca.chat.memory.summaries}
+ * by {@code outcome}.
+ */
+@Log4j2
+public class SummarizingChatMemory implements ChatMemory, DisposableBean {
+
+    private static final String SUMMARY_PREFIX = "Summary of the earlier conversation: ";
+    private static final int LOCK_STRIPES = 64;
+
+    private final ChatMemoryRepository repository;
+    private final ChatSummaryStore summaryStore;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatModel chatModel;
+    private final String summaryInstructions;
+    private final ChatMemoryProperties.Summarizing settings;
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+    /* Empty string caches "no summary yet" so idle conversations do not hit the database. */
+    private final Cache<String, String> summaries;
+    private final Set<String> summarizing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService summarizer = Executors.newVirtualThreadPerTaskExecutor();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final DistributionSummary memoryTokens;
+    private final Timer summarizeTimer;
+    private final Counter summarized;
+    private final Counter failed;
+
+    public SummarizingChatMemory(ChatMemoryRepository repository, ChatSummaryStore summaryStore,
+                                 TransactionTemplate transactionTemplate, ChatModel chatModel, String summaryInstructions,
+                                 ChatMemoryProperties properties, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.summaryStore = summaryStore;
+        this.transactionTemplate = transactionTemplate;
+        this.chatModel = chatModel;
+        this.summaryInstructions = summaryInstructions;
+        this.settings = properties.summarizing();
+        if (settings.recentTokens() >= settings.tokenBudget()) {
+            throw new IllegalArgumentException("hbca.ai.memory.summarizing.recent-tokens must be below token-budget");
+        }
+        this.summaries = Caffeine.newBuilder()
+                .maximumSize(properties.maximumConversations())
+                .expireAfterAccess(properties.expireAfterAccess())
+                .build();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.memoryTokens = DistributionSummary.builder("hbca.chat.memory.tokens")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.summarizeTimer = meterRegistry.timer("hbca.chat.memory.summarize");
+        this.summarized = meterRegistry.counter("hbca.chat.memory.summaries", "outcome", "success");
+        this.failed = meterRegistry.counter("hbca.chat.memory.summaries", "outcome", "failure");
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<Message> all;
+        synchronized (lock(conversationId)) {
+            all = new ArrayList<>(repository.findByConversationId(conversationId));
+            all.addAll(messages);
+            repository.saveAll(conversationId, all);
+        }
+        if (tokens(all) > settings.tokenBudget() && summarizing.add(conversationId)) {
+            summarizer.execute(() -> fold(conversationId));
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        List<Message> stored = repository.findByConversationId(conversationId);
+        String summary = summary(conversationId);
+        int summaryTokens = summary == null ? 0 : tokenCountEstimator.estimate(summary);
+
+        int budget = settings.tokenBudget() - summaryTokens;
+        int from = stored.size();
+        int used = 0;
+        while (from > 0) {
+            int messageTokens = tokens(stored.get(from - 1));
+            if (used + messageTokens > budget) {
+                break;
+            }
+            used += messageTokens;
+            from--;
+        }
+        memoryTokens.record(used + summaryTokens);
+
+        List<Message> memory = new ArrayList<>(stored.size() - from + 1);
+        if (summary != null) {
+            memory.add(AssistantMessage.builder().content(SUMMARY_PREFIX + summary).build());
+        }
+        memory.addAll(stored.subList(from, stored.size()));
+        return memory;
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        synchronized (lock(conversationId)) {
+            transactionTemplate.executeWithoutResult(_ -> {
+                repository.deleteByConversationId(conversationId);
+                summaryStore.delete(conversationId);
+            });
+            summaries.invalidate(conversationId);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        summarizer.shutdownNow();
+    }
+
+    /**
+     * Drops the cached summaries of conversations removed by {@link ChatMemoryRetention}
+     */
+    public void onConversationsRemoved(ChatConversationsRemovedEvent event) {
+        summaries.invalidateAll(event.conversationIds());
+    }
+
+    /**
+     * Folds everything but the most recent turns into the summary. The model call runs
+     * without holding the lock; the folded messages are removed only if the
+     * conversation still starts with them.
+     */
+    private void fold(String conversationId) {
+        try {
+            List<Message> stored = repository.findByConversationId(conversationId);
+            int split = splitPoint(stored);
+            if (split == 0) {
+                return;
+            }
+            List<Message> folded = List.copyOf(stored.subList(0, split));
+            String updated = summarizeTimer.record(() -> summarize(summary(conversationId), folded));
+            if (updated == null || updated.isBlank()) {
+                throw new IllegalStateException("The chat model returned an empty summary");
+            }
+            synchronized (lock(conversationId)) {
+                List<Message> current = repository.findByConversationId(conversationId);
+                if (current.size() < folded.size() || !current.subList(0, folded.size()).equals(folded)) {
+                    log.debug("Conversation {} changed while it was summarized, discarding the summary", conversationId);
+                    return;
+                }
+                String summary = updated.strip();
+                List<Message> kept = List.copyOf(current.subList(folded.size(), current.size()));
+                transactionTemplate.executeWithoutResult(_ -> {
+                    summaryStore.save(conversationId, summary);
+                    repository.saveAll(conversationId, kept);
+                });
+                summaries.put(conversationId, summary);
+            }
+            summarized.increment();
+            log.debug("Folded {} messages of conversation {} into its summary", folded.size(), conversationId);
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("Failed to summarize conversation {}, keeping its messages verbatim", conversationId, e);
+        } finally {
+            summarizing.remove(conversationId);
+        }
+    }
+
+    /**
+     * Index of the first message kept verbatim: the newest {@code recentTokens} are kept,
+     * moved forward to the next user message so no turn is split, and the latest message
+     * is always kept.
+     */
+    private int splitPoint(List<Message> messages) {
+        int keepFrom = messages.size();
+        int used = 0;
+        while (keepFrom > 0) {
+            int messageTokens = tokens(messages.get(keepFrom - 1));
+            if (used + messageTokens > settings.recentTokens()) {
+                break;
+            }
+            used += messageTokens;
+            keepFrom--;
+        }
+        int split = keepFrom;
+        while (split < messages.size() && messages.get(split).getMessageType() != MessageType.USER) {
+            split++;
+        }
+        if (split == messages.size()) {
+            split = keepFrom;
+        }
+        return Math.min(split, messages.size() - 1);
+    }
+
+    private @Nullable String summarize(@Nullable String previous, List<Message> folded) {
+        String transcript = folded.stream()
+                .filter(message -> message.getMessageType() == MessageType.USER
+                        || message.getMessageType() == MessageType.ASSISTANT)
+                .map(message -> message.getMessageType() + ": " + message.getText())
+                .collect(Collectors.joining(System.lineSeparator()));
+        String input = "Current summary:%n%s%n%nMessages:%n%s".formatted(previous == null ? "" : previous, transcript);
+        var response = chatModel.call(new Prompt(List.of(
+                SystemMessage.builder().text(summaryInstructions).build(),
+                UserMessage.builder().text(input).build())));
+        return response.getResult() == null ? null : response.getResult().getOutput().getText();
+    }
+
+    private @Nullable String summary(String conversationId) {
+        String summary = summaries.get(conversationId,
+                id -> Objects.requireNonNullElse(summaryStore.load(id), ""));
+        return summary.isEmpty() ? null : summary;
+    }
+
+    private int tokens(List<Message> messages) {
+        int total = 0;
+        for (Message message : messages) {
+            total += tokens(message);
+        }
+        return total;
+    }
+
+    private int tokens(Message message) {
+        String text = message.getText();
+        return text == null || text.isEmpty() ? 1 : tokenCountEstimator.estimate(text);
+    }
+
+    private Object lock(String conversationId) {
+        return locks[Math.floorMod(conversationId.hashCode(), LOCK_STRIPES)];
+    }
+}
@@ -0,0 +1,304 @@
+package rs.siriusxi.hbca.service.ai.memory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.jspecify.annotations.Nullable;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.siriusxi.hbca.config.ChatMemoryProperties;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChatMemoryRepository} that serves active conversations from memory and
+ * persists them to the database asynchronously.
+ * <p>
+ * {@code MessageWindowChatMemory} reads a conversation and saves the whole window back
+ * on every turn; against {@code JdbcChatMemoryRepository} that is a select, a delete and
+ * a re-insert of every message on the streaming request path. Here:
+ * - Reads are answered from a bounded Caffeine cache; a conversation that was evicted,
+ *   or never seen since startup, is loaded from the database once.
+ * - Saves only replace the in-memory window and mark the conversation dirty.
+ * - A background flusher diffs each dirty window against what is already persisted,
+ *   trims the oldest rows that slid out of the window and inserts only the new tail.
+ *   All dirty conversations are written in one transaction with batched statements.
+ * - A dirty conversation is kept until it is flushed, even if the cache evicts it,
+ *   and everything pending is flushed on shutdown.
+ * - A conversation removed by {@link ChatMemoryRetention} while still held in memory
+ *   is rewritten in full on the next flush, so the window the user sees is persisted
+ *   again instead of being diffed against rows that no longer exist.
+ * <p>
+ * A crash loses at most the turns of the last {@code flushInterval}. A failed flush is
+ * logged and retried on the next tick.
+ * <p>
+ * Metrics: {@code hbca.chat.memory.dirty} (gauge), {@code hbca.chat.memory.flush} (timer),
+ * {@code hbca.chat.memory.flushed.rows}, {@code hbca.chat.memory.flush.failures}, and
+ * Caffeine statistics under {@code hbca.chat.memory.conversations}.
+ */
+@Log4j2
+public class WriteBehindChatMemoryRepository implements ChatMemoryRepository, InitializingBean, DisposableBean {
+
+    private static final String CACHE_NAME = "hbca.chat.memory.conversations";
+
+    private final ChatMessageStore store;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatMemoryProperties properties;
+    private final Cache<String, Conversation> conversations;
+    private final Map<String, Conversation> dirty = new ConcurrentHashMap<>();
+    private final Timer flushTimer;
+    private final Counter flushedRows;
+    private final Counter flushFailures;
+    private @Nullable ScheduledExecutorService flusher;
+
+    public WriteBehindChatMemoryRepository(ChatMessageStore store, TransactionTemplate transactionTemplate,
+                                           ChatMemoryProperties properties, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.conversations = Caffeine.newBuilder()
+                .maximumSize(properties.maximumConversations())
+                .expireAfterAccess(properties.expireAfterAccess())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, conversations, CACHE_NAME);
+        meterRegistry.gaugeMapSize("hbca.chat.memory.dirty", Tags.empty(), dirty);
+        this.flushTimer = meterRegistry.timer("hbca.chat.memory.flush");
+        this.flushedRows = meterRegistry.counter("hbca.chat.memory.flushed.rows");
+        this.flushFailures = meterRegistry.counter("hbca.chat.memory.flush.failures");
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        Set<String> ids = new LinkedHashSet<>(store.conversationIds());
+        dirty.forEach((id, conversation) -> {
+            synchronized (conversation) {
+                if (conversation.messages.isEmpty()) {
+                    ids.remove(id);
+                } else {
+                    ids.add(id);
+                }
+            }
+        });
+        return List.copyOf(ids);
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Conversation conversation = conversation(conversationId);
+        synchronized (conversation) {
+            return conversation.messages;
+        }
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        update(conversationId, List.copyOf(messages));
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        update(conversationId, List.of());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long interval = properties.flushInterval().toMillis();
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("chat-memory-flush").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        flush();
+        if (!dirty.isEmpty()) {
+            log.error("{} conversations could not be persisted before shutdown", dirty.size());
+        }
+    }
+
+    /**
+     * Forgets the persisted rows of removed conversations still held in memory
+     */
+    @EventListener
+    public synchronized void onConversationsRemoved(ChatConversationsRemovedEvent event) {
+        for (String conversationId : event.conversationIds()) {
+            Conversation conversation = dirty.get(conversationId);
+            if (conversation == null) {
+                conversation = conversations.getIfPresent(conversationId);
+            }
+            if (conversation == null) {
+                continue;
+            }
+            synchronized (conversation) {
+                conversation.persisted = List.of();
+                conversation.rewrite = true;
+                conversation.version++;
+                dirty.put(conversationId, conversation);
+            }
+        }
+    }
+
+    /**
+     * Writes every dirty conversation in one transaction; safe to call at any time
+     */
+    synchronized void flush() {
+        List<Flush> flushes = new ArrayList<>();
+        dirty.forEach((id, conversation) -> {
+            synchronized (conversation) {
+                flushes.add(plan(id, conversation));
+            }
+        });
+        if (flushes.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<StoredMessage>> appended = new HashMap<>();
+        Map<String, Instant> trimmed = new HashMap<>();
+        List<String> cleared = new ArrayList<>();
+        int rows = 0;
+        for (Flush flush : flushes) {
+            if (flush.clearAll()) {
+                cleared.add(flush.conversationId());
+            } else if (flush.trimBefore() != null) {
+                trimmed.put(flush.conversationId(), flush.trimBefore());
+            }
+            if (!flush.appended().isEmpty()) {
+                appended.put(flush.conversationId(), flush.appended());
+                rows += flush.appended().size();
+            }
+        }
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(_ -> {
+                store.delete(cleared);
+                store.deleteBefore(trimmed);
+                store.append(appended);
+            }));
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            log.warn("Failed to flush {} conversations to chat memory, retrying on next flush", flushes.size(), e);
+            return;
+        }
+        flushedRows.increment(rows);
+
+        for (Flush flush : flushes) {
+            Conversation conversation = flush.conversation();
+            synchronized (conversation) {
+                conversation.persisted = flush.persistedAfter();
+                conversation.rewrite = false;
+                if (conversation.version == flush.version()) {
+                    dirty.remove(flush.conversationId(), conversation);
+                }
+            }
+        }
+    }
+
+    private void update(String conversationId, List<Message> messages) {
+        Conversation conversation = conversation(conversationId);
+        synchronized (conversation) {
+            conversation.messages = messages;
+            conversation.version++;
+            dirty.put(conversationId, conversation);
+        }
+        conversations.put(conversationId, conversation);
+    }
+
+    private Conversation conversation(String conversationId) {
+        Conversation pending = dirty.get(conversationId);
+        if (pending != null) {
+            return pending;
+        }
+        return conversations.get(conversationId, id -> new Conversation(store.load(id)));
+    }
+
+    /**
+     * Finds the longest suffix of the persisted rows the window still starts with:
+     * older rows are trimmed and only messages after that suffix are inserted.
+     */
+    private static Flush plan(String conversationId, Conversation conversation) {
+        List<StoredMessage> persisted = conversation.persisted;
+        List<Message> target = conversation.messages;
+        int dropped = 0;
+        while (dropped < persisted.size() && !startsWith(target, persisted.subList(dropped, persisted.size()))) {
+            dropped++;
+        }
+        int retained = persisted.size() - dropped;
+        List<StoredMessage> kept = persisted.subList(dropped, persisted.size());
+
+        // Rows are ordered by timestamp; new ones must sort after everything retained.
+        Instant next = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        if (!kept.isEmpty() && !next.isAfter(kept.getLast().timestamp())) {
+            next = kept.getLast().timestamp().plusMillis(1);
+        }
+        List<StoredMessage> appended = new ArrayList<>(target.size() - retained);
+        for (Message message : target.subList(retained, target.size())) {
+            appended.add(new StoredMessage(message, next));
+            next = next.plusMillis(1);
+        }
+
+        List<StoredMessage> persistedAfter = new ArrayList<>(kept);
+        persistedAfter.addAll(appended);
+        // A rewrite also removes rows a flush wrote between the retention delete and its event.
+        boolean clearAll = conversation.rewrite || (dropped > 0 && kept.isEmpty());
+        Instant trimBefore = dropped > 0 && !kept.isEmpty() ? kept.getFirst().timestamp() : null;
+        return new Flush(conversationId, conversation, conversation.version, clearAll, trimBefore,
+                appended, List.copyOf(persistedAfter));
+    }
+
+    private static boolean startsWith(List<Message> messages, List<StoredMessage> prefix) {
+        if (prefix.size() > messages.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.size(); i++) {
+            if (!messages.get(i).equals(prefix.get(i).message())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Current window and persisted rows of one conversation; guarded by its own monitor
+     */
+    private static final class Conversation {
+
+        private List<Message> messages;
+        private List<StoredMessage> persisted;
+        private long version;
+        private boolean rewrite;
+
+        Conversation(List<StoredMessage> persisted) {
+            this.persisted = List.copyOf(persisted);
+            this.messages = persisted.stream().map(StoredMessage::message).toList();
+        }
+    }
+
+    private record Flush(String conversationId, Conversation conversation, long version, boolean clearAll,
+                         @Nullable Instant trimBefore, List<StoredMessage> appended,
+                         List<StoredMessage> persistedAfter) {
+    }
+}
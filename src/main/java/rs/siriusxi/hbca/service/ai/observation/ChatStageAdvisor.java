@@ -0,0 +1,136 @@
+package rs.siriusxi.hbca.service.ai.observation;
+
+import io.micrometer.observation.Observation;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Advisors measuring prompt assembly and time to first token for the {@link ChatStageObserver}.
+ * <p>
+ * {@link #turnStart} runs first and stamps the request; {@link #modelRequest} runs last,
+ * right before the model, where it:
+ * - records {@code prompt.assembly}, the time spent by memory, retrieval and the other
+ *   advisors since the stamp, tagged with the tokens of the assembled prompt,
+ * - passes the prompt token count to the tools through the tool context
+ *   ({@link #PROMPT_TOKENS_CONTEXT}), so tool stages carry it too,
+ * - observes {@code ttft} until the first response chunk arrives.
+ * <p>
+ * A turn answered by an advisor in between (e.g. the response cache) never reaches the
+ * model and records neither stage.
+ */
+public final class ChatStageAdvisor implements CallAdvisor, StreamAdvisor {
+
+    /**
+     * Tool context key holding the estimated token count of the prompt that requested the tool
+     */
+    public static final String PROMPT_TOKENS_CONTEXT = "hbca_prompt_tokens";
+
+    private static final String TURN_START = "hbca.chat.turn-start";
+
+    private final ChatStageObserver observer;
+    private final boolean first;
+
+    private ChatStageAdvisor(ChatStageObserver observer, boolean first) {
+        this.observer = observer;
+        this.first = first;
+    }
+
+    /**
+     * Outermost advisor, stamping the start of the turn
+     */
+    public static ChatStageAdvisor turnStart(ChatStageObserver observer) {
+        return new ChatStageAdvisor(observer, true);
+    }
+
+    /**
+     * Innermost advisor, recording assembly and observing the first token
+     */
+    public static ChatStageAdvisor modelRequest(ChatStageObserver observer) {
+        return new ChatStageAdvisor(observer, false);
+    }
+
+    @Override
+    public String getName() {
+        return first ? "ChatStageTurnStartAdvisor" : "ChatStageModelRequestAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return first ? Ordered.HIGHEST_PRECEDENCE : Ordered.LOWEST_PRECEDENCE - 1;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        if (first) {
+            return chain.nextCall(stamp(request));
+        }
+        int tokens = beforeModel(request);
+        Observation ttft = observer.start("ttft");
+        try {
+            return chain.nextCall(request);
+        } catch (RuntimeException e) {
+            ttft.error(e);
+            throw e;
+        } finally {
+            observer.stop(ttft, tokens);
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        if (first) {
+            return Flux.defer(() -> chain.nextStream(stamp(request)));
+        }
+        return Flux.defer(() -> {
+            int tokens = beforeModel(request);
+            Observation ttft = observer.start("ttft");
+            var stopped = new AtomicBoolean();
+            return chain.nextStream(request)
+                    .doOnNext(_ -> {
+                        if (stopped.compareAndSet(false, true)) {
+                            observer.stop(ttft, tokens);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (stopped.compareAndSet(false, true)) {
+                            ttft.error(e);
+                            observer.stop(ttft, tokens);
+                        }
+                    })
+                    .doFinally(_ -> {
+                        if (stopped.compareAndSet(false, true)) {
+                            observer.stop(ttft, tokens);
+                        }
+                    });
+        });
+    }
+
+    private static ChatClientRequest stamp(ChatClientRequest request) {
+        return request.mutate().context(TURN_START, System.nanoTime()).build();
+    }
+
+    private int beforeModel(ChatClientRequest request) {
+        int tokens = observer.tokens(request.prompt().getInstructions());
+        if (request.context().get(TURN_START) instanceof Long start) {
+            observer.record("prompt.assembly", tokens, Duration.ofNanos(System.nanoTime() - start));
+        }
+        if (request.prompt().getOptions() instanceof ToolCallingChatOptions options) {
+            Map<String, Object> toolContext = new HashMap<>(options.getToolContext());
+            toolContext.put(PROMPT_TOKENS_CONTEXT, tokens);
+            options.setToolContext(toolContext);
+        }
+        return tokens;
+    }
+}
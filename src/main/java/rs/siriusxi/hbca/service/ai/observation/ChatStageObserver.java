@@ -0,0 +1,137 @@
+package rs.siriusxi.hbca.service.ai.observation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Times the stages of a chat turn as {@code hbca.chat.stage} observations, i.e. a timer
+ * and a span per stage. Prompt assembly spans several advisors and is measured from
+ * timestamps, so it is a timer only; Spring AI's advisor spans show it in traces.
+ * <p>
+ * Stages:
+ * - {@code memory.load}, {@code memory.write}: chat memory access,
+ * - {@code rag.embedding}, {@code rag.search}: question embedding and vector search
+ *   of retrieval (the search includes the embedding),
+ * - {@code prompt.assembly}: from the start of the turn until the prompt reaches the model,
+ * - {@code ttft}: from the model request until the first streamed token,
+ * - {@code tool.<name>}: each booking tool invocation.
+ * <p>
+ * Every observation is tagged with {@code stage} and {@code prompt.tokens}, a
+ * power-of-two bucket ({@code 512}, {@code 1k} ... {@code 8k}, {@code more}) of the
+ * tokens the stage works on: the loaded or written messages, the question, or the
+ * assembled prompt for assembly, first token and tools. The count is a span attribute.
+ * <p>
+ * Tokens are estimated at four characters each rather than with a tokenizer: memory and
+ * the assembled prompt are counted on every turn, and a bucket tag does not justify
+ * tokenizing the whole window each time. Histograms are enabled in configuration so p99
+ * can be broken down by stage.
+ */
+@Component
+public class ChatStageObserver {
+
+    public static final String OBSERVATION_NAME = "hbca.chat.stage";
+    static final String STAGE = "stage";
+    static final String PROMPT_TOKENS = "prompt.tokens";
+    static final String PROMPT_TOKENS_ESTIMATE = "prompt.tokens.estimate";
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int[] BUCKETS = {512, 1024, 2048, 4096, 8192};
+    private static final String[] BUCKET_NAMES = {"512", "1k", "2k", "4k", "8k"};
+
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    public ChatStageObserver(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Observes a stage whose token count is known up front
+     */
+    public <T> T observe(String stage, int tokens, Supplier<T> call) {
+        return observe(stage, call, _ -> tokens);
+    }
+
+    /**
+     * Observes a stage whose token count is derived from its result
+     */
+    public <T> T observe(String stage, Supplier<T> call, ToIntFunction<? super T> tokens) {
+        Observation observation = start(stage);
+        try (var _ = observation.openScope()) {
+            T result = call.get();
+            tag(observation, tokens.applyAsInt(result));
+            return result;
+        } catch (RuntimeException e) {
+            tag(observation, 0);
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * Starts a stage that ends asynchronously; finish it with {@link #stop(Observation, int)}
+     */
+    public Observation start(String stage) {
+        return Observation.createNotStarted(OBSERVATION_NAME, observationRegistry)
+                .contextualName("chat " + stage)
+                .lowCardinalityKeyValue(STAGE, stage)
+                .start();
+    }
+
+    public void stop(Observation observation, int tokens) {
+        tag(observation, tokens);
+        observation.stop();
+    }
+
+    /**
+     * Records a stage measured from timestamps rather than around a call; timer only
+     */
+    public void record(String stage, int tokens, Duration duration) {
+        Timer.builder(OBSERVATION_NAME)
+                .tag(STAGE, stage)
+                .tag(PROMPT_TOKENS, bucket(tokens))
+                .tag("error", "none")
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    /**
+     * Cheap token estimate of the text, good enough for the bucket tags
+     */
+    public int tokens(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public int tokens(List<? extends Message> messages) {
+        int tokens = 0;
+        for (Message message : messages) {
+            tokens += tokens(message.getText());
+        }
+        return tokens;
+    }
+
+    static String bucket(int tokens) {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (tokens <= BUCKETS[i]) {
+                return BUCKET_NAMES[i];
+            }
+        }
+        return "more";
+    }
+
+    private static void tag(Observation observation, int tokens) {
+        observation.lowCardinalityKeyValue(PROMPT_TOKENS, bucket(tokens))
+                .highCardinalityKeyValue(PROMPT_TOKENS_ESTIMATE, Integer.toString(tokens));
+    }
+}
@@ -0,0 +1,157 @@
+package rs.siriusxi.hbca.service.ai.observation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+import rs.siriusxi.hbca.config.InteractionLogProperties;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+import static org.springframework.ai.chat.memory.ChatMemory.CONVERSATION_ID;
+
+/**
+ * Advisor logging a sample of chat turns as one structured event each, replacing
+ * {@code SimpleLoggerAdvisor}.
+ * <p>
+ * {@code SimpleLoggerAdvisor} serializes every request, including up to 100 memory
+ * messages and the retrieved documents, and every response chunk, on the stream thread.
+ * Here:
+ * - Only {@code sampleRate} of the turns are logged, plus every failed turn; the other
+ *   turns pay for one random number.
+ * - Only the question and the answer are kept, with e-mail, card and phone numbers
+ *   (configurable) redacted and then capped at {@code maxChars}. Redacting first means a
+ *   number cut by the cap is still recognized; the streamed answer is collected up to
+ *   {@code maxChars} plus a small headroom for the same reason.
+ * - The event goes to the {@code hbca.interaction} logger with key-value pairs
+ *   ({@code conversation_id}, {@code outcome}, {@code duration_ms}, {@code question},
+ *   {@code answer}, {@code answer_chars}), which {@code logback-spring.xml} routes through
+ *   a non-blocking async appender to the console and the OpenTelemetry appender.
+ */
+@Slf4j(topic = "hbca.interaction")
+public class InteractionLoggingAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private static final String REDACTED = "[redacted]";
+    /* Longer than any redacted value, so one that starts before the cap is collected whole. */
+    private static final int REDACTION_HEADROOM = 256;
+
+    private final double sampleRate;
+    private final int maxChars;
+    private final List<Pattern> redactions;
+
+    public InteractionLoggingAdvisor(InteractionLogProperties properties) {
+        this.sampleRate = properties.sampleRate();
+        this.maxChars = Math.max(0, properties.maxChars());
+        this.redactions = properties.redact().stream().map(Pattern::compile).toList();
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        // Where SimpleLoggerAdvisor was: sees every turn, including replayed answers.
+        return -1;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        boolean sampled = sampled();
+        long start = System.nanoTime();
+        try {
+            ChatClientResponse response = chain.nextCall(request);
+            if (sampled) {
+                var answer = new StringBuilder();
+                append(answer, response);
+                log(request, "completed", start, answer, answer.length());
+            }
+            return response;
+        } catch (RuntimeException e) {
+            log(request, "failed", start, new StringBuilder(), 0);
+            throw e;
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+            boolean sampled = sampled();
+            long start = System.nanoTime();
+            var answer = new StringBuilder();
+            long[] answerChars = {0};
+            return chain.nextStream(request)
+                    .doOnNext(response -> {
+                        if (sampled) {
+                            answerChars[0] += append(answer, response);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        if (signal == SignalType.ON_ERROR) {
+                            log(request, "failed", start, answer, answerChars[0]);
+                        } else if (sampled) {
+                            log(request, signal == SignalType.CANCEL ? "cancelled" : "completed",
+                                    start, answer, answerChars[0]);
+                        }
+                    });
+        });
+    }
+
+    private boolean sampled() {
+        return sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * Appends the chunk's text up to the cap plus headroom; returns its full length
+     */
+    private int append(StringBuilder answer, @Nullable ChatClientResponse response) {
+        if (response == null || response.chatResponse() == null || response.chatResponse().getResult() == null) {
+            return 0;
+        }
+        String text = response.chatResponse().getResult().getOutput().getText();
+        if (text == null) {
+            return 0;
+        }
+        int room = maxChars + REDACTION_HEADROOM - answer.length();
+        if (room > 0) {
+            answer.append(text, 0, Math.min(room, text.length()));
+        }
+        return text.length();
+    }
+
+    private void log(ChatClientRequest request, String outcome, long start, CharSequence answer, long answerChars) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        String question = request.prompt().getUserMessage().getText();
+        log.atInfo()
+                .addKeyValue("conversation_id", request.context().get(CONVERSATION_ID))
+                .addKeyValue("outcome", outcome)
+                .addKeyValue("duration_ms", (System.nanoTime() - start) / 1_000_000)
+                .addKeyValue("question", cap(redact(question == null ? "" : question)))
+                .addKeyValue("answer", cap(redact(answer.toString())))
+                .addKeyValue("answer_chars", answerChars)
+                .log("Chat interaction {}", outcome);
+    }
+
+    private String cap(String text) {
+        return text.length() <= maxChars ? text : text.substring(0, maxChars);
+    }
+
+    private String redact(String text) {
+        String redacted = text;
+        for (Pattern pattern : redactions) {
+            redacted = pattern.matcher(redacted).replaceAll(REDACTED);
+        }
+        return redacted;
+    }
+}
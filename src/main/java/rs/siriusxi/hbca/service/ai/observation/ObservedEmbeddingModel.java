@@ -0,0 +1,41 @@
+package rs.siriusxi.hbca.service.ai.observation;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} decorator observing single-text embeddings, i.e. the questions
+ * embedded by retrieval and the response cache, as the {@code rag.embedding} chat stage
+ */
+public class ObservedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final ChatStageObserver stageObserver;
+
+    public ObservedEmbeddingModel(EmbeddingModel delegate, ChatStageObserver stageObserver) {
+        this.delegate = delegate;
+        this.stageObserver = stageObserver;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return stageObserver.observe("rag.embedding", stageObserver.tokens(text), () -> delegate.embed(text));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
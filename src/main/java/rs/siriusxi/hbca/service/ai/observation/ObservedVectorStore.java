@@ -0,0 +1,49 @@
+package rs.siriusxi.hbca.service.ai.observation;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+
+/**
+ * {@link VectorStore} decorator observing retrieval searches as the {@code rag.search}
+ * chat stage, tagged with the tokens of the question
+ */
+public class ObservedVectorStore implements VectorStore {
+
+    private final VectorStore delegate;
+    private final ChatStageObserver stageObserver;
+
+    public ObservedVectorStore(VectorStore delegate, ChatStageObserver stageObserver) {
+        this.delegate = delegate;
+        this.stageObserver = stageObserver;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        delegate.add(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        delegate.delete(idList);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        delegate.delete(filterExpression);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return stageObserver.observe("rag.search", stageObserver.tokens(request.getQuery()),
+                () -> delegate.similaritySearch(request));
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+}
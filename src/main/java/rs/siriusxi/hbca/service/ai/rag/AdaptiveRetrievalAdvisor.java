@@ -0,0 +1,197 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import reactor.core.scheduler.Scheduler;
+import rs.siriusxi.hbca.config.RetrievalProperties;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Retrieval advisor replacing {@link QuestionAnswerAdvisor}'s search-every-turn policy.
+ * <p>
+ * Per turn:
+ * - The {@link QueryIntentClassifier} decides locally whether the terms can help; booking
+ *   lookups ("show booking 101 for Jack Bauer") and small talk skip the vector search
+ *   and the context block entirely. Booking changes do retrieve: the model has to check
+ *   them against the terms and quote their charges.
+ * - Otherwise top-k grows with the number of questions in the message, between
+ *   {@code minTopK} and {@code maxTopK}, and hits below the similarity threshold or too
+ *   far below the best hit are dropped.
+ * - Chunks with the same content, and chunks whose sentences mostly appear in the prompt
+ *   already (e.g. quoted in the chat memory), are not injected again.
+ * - The remaining chunks augment the user message through {@code RetrievalContext.st}
+ *   and are exposed under {@link QuestionAnswerAdvisor#RETRIEVED_DOCUMENTS}.
+ * <p>
+ * The search blocks, so {@code before} runs on the given scheduler.
+ * <p>
+ * Metrics: {@code hbca.rag.retrieval} by {@code decision} (skipped, retrieved, empty),
+ * {@code hbca.rag.retrieval.chunks} (chunks injected per turn) and
+ * {@code hbca.rag.retrieval.deduplicated}.
+ */
+@Log4j2
+public class AdaptiveRetrievalAdvisor implements BaseAdvisor {
+
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+");
+    private static final int MIN_SENTENCE_LENGTH = 20;
+    private static final double PRESENT_SHARE = 0.6;
+
+    private final VectorStore vectorStore;
+    private final PromptTemplate contextTemplate;
+    private final RetrievalProperties properties;
+    private final QueryIntentClassifier classifier = new QueryIntentClassifier();
+    private final Scheduler scheduler;
+    private final Counter skipped;
+    private final Counter retrieved;
+    private final Counter empty;
+    private final Counter deduplicated;
+    private final DistributionSummary injectedChunks;
+
+    public AdaptiveRetrievalAdvisor(VectorStore vectorStore, String contextTemplate, RetrievalProperties properties,
+                                    Scheduler scheduler, MeterRegistry meterRegistry) {
+        this.vectorStore = vectorStore;
+        this.contextTemplate = PromptTemplate.builder().template(contextTemplate).build();
+        this.properties = properties;
+        this.scheduler = scheduler;
+        this.skipped = meterRegistry.counter("hbca.rag.retrieval", "decision", "skipped");
+        this.retrieved = meterRegistry.counter("hbca.rag.retrieval", "decision", "retrieved");
+        this.empty = meterRegistry.counter("hbca.rag.retrieval", "decision", "empty");
+        this.deduplicated = meterRegistry.counter("hbca.rag.retrieval.deduplicated");
+        this.injectedChunks = meterRegistry.summary("hbca.rag.retrieval.chunks");
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    @Override
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest request, AdvisorChain chain) {
+        String query = request.prompt().getUserMessage().getText();
+        if (query == null || query.isBlank()) {
+            return request;
+        }
+        var intent = classifier.classify(query);
+        if (properties.skipLookups() && !intent.needsTerms()) {
+            skipped.increment();
+            log.debug("Skipping retrieval for a {} message", intent);
+            return request;
+        }
+
+        List<Document> documents = select(search(query), promptText(request));
+        injectedChunks.record(documents.size());
+        if (documents.isEmpty()) {
+            empty.increment();
+            return request;
+        }
+        retrieved.increment();
+        String context = documents.stream().map(Document::getText).collect(Collectors.joining(System.lineSeparator()));
+        String augmented = contextTemplate.render(Map.of("query", query, "context", context));
+        return request.mutate()
+                .prompt(request.prompt().augmentUserMessage(augmented))
+                .context(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS, documents)
+                .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse response, AdvisorChain chain) {
+        return response;
+    }
+
+    int topK(String query) {
+        int words = query.strip().split("\\s+").length;
+        int topK = properties.minTopK() + 2 * (classifier.questions(query) - 1) + (words > 25 ? 1 : 0);
+        return Math.clamp(topK, properties.minTopK(), Math.max(properties.minTopK(), properties.maxTopK()));
+    }
+
+    private List<Document> search(String query) {
+        List<Document> hits = vectorStore.similaritySearch(SearchRequest.builder()
+                .query(query)
+                .topK(topK(query))
+                .similarityThreshold(properties.similarityThreshold())
+                .build());
+        if (hits == null || hits.isEmpty()) {
+            return List.of();
+        }
+        double best = hits.stream().mapToDouble(AdaptiveRetrievalAdvisor::score).max().orElse(0);
+        return hits.stream().filter(hit -> score(hit) >= best - properties.relativeMargin()).toList();
+    }
+
+    /**
+     * Drops chunks with repeated content and chunks already present in the prompt
+     */
+    private List<Document> select(List<Document> hits, String promptText) {
+        List<Document> selected = new ArrayList<>(hits.size());
+        Set<String> contents = new HashSet<>();
+        for (Document hit : hits) {
+            Object hash = hit.getMetadata().get(DocumentIngestionService.CONTENT_HASH_METADATA);
+            String content = hash != null ? hash.toString() : hit.getText();
+            if (!contents.add(content) || presentIn(hit.getText(), promptText)) {
+                deduplicated.increment();
+                continue;
+            }
+            selected.add(hit);
+        }
+        return selected;
+    }
+
+    private static boolean presentIn(String chunk, String promptText) {
+        if (promptText.isEmpty()) {
+            return false;
+        }
+        int sentences = 0;
+        int present = 0;
+        for (String sentence : SENTENCE_END.split(chunk)) {
+            String trimmed = sentence.strip();
+            if (trimmed.length() >= MIN_SENTENCE_LENGTH) {
+                sentences++;
+                if (promptText.contains(trimmed)) {
+                    present++;
+                }
+            }
+        }
+        return sentences > 0 && present >= sentences * PRESENT_SHARE;
+    }
+
+    /**
+     * System text, including the rendered chat memory, and every message before the current one
+     */
+    private static String promptText(ChatClientRequest request) {
+        List<Message> instructions = request.prompt().getInstructions();
+        var text = new StringBuilder();
+        for (int i = 0; i < instructions.size() - 1; i++) {
+            String messageText = instructions.get(i).getText();
+            if (messageText != null) {
+                text.append(messageText).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static double score(Document document) {
+        return document.getScore() == null ? 0 : document.getScore();
+    }
+}
@@ -0,0 +1,236 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.TextReader;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Service;
+import rs.siriusxi.hbca.config.IngestionProperties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Incremental, content-addressed ingestion of knowledge documents into the
+ * {@link HnswVectorStore}.
+ * <p>
+ * Every chunk produced by {@link TokenTextSplitter} is hashed (SHA-256) and gets a
+ * deterministic id derived from its source and hash. An {@link IngestionManifest}
+ * persisted next to the vector segment records what is already indexed, so a run:
+ * - embeds only chunks that are new or whose text changed,
+ * - deletes chunks that disappeared from their source, and chunks of sources that
+ *   are no longer configured,
+ * - re-uses the stored embedding of any chunk whose text is already indexed
+ *   (e.g. moved between files), including documents from stores written before
+ *   the manifest existed.
+ * <p>
+ * Sources are Spring resource locations or patterns, so single files, classpath
+ * entries and whole directories ({@code file:./knowledge/**}{@code /*.md}) can be mixed.
+ * New chunks are embedded through the batched {@link EmbeddingPipeline}.
+ * With {@code hbca.rag.ingestion.background=true} the run happens on a virtual thread
+ * and retrieval serves the previously indexed content until it completes.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class DocumentIngestionService {
+
+    /**
+     * Outcome of one ingestion run
+     */
+    public record IngestionReport(int sources, int unchanged, int embedded, int reused, int deleted) {
+    }
+
+    static final String SOURCE_METADATA = "source";
+    static final String CONTENT_HASH_METADATA = "content_hash";
+
+    private final HnswVectorStore vectorStore;
+    private final EmbeddingPipeline embeddingPipeline;
+    private final ResourcePatternResolver resourceResolver;
+    private final IngestionProperties properties;
+
+    /**
+     * Loads the persisted index and brings it up to date, in the background if configured
+     */
+    public CompletableFuture<IngestionReport> start() {
+        if (!properties.background()) {
+            return CompletableFuture.completedFuture(ingest());
+        }
+        var result = new CompletableFuture<IngestionReport>();
+        Thread.ofVirtual().name("rag-ingestion").start(() -> {
+            try {
+                result.complete(ingest());
+            } catch (RuntimeException e) {
+                log.error("Background document ingestion failed", e);
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Synchronizes the vector store with the configured sources and persists it
+     */
+    public synchronized IngestionReport ingest() {
+        if (Files.exists(properties.segmentFile())) {
+            log.info("Vector store file '{}' exists, loading the data...", properties.segmentFile().getFileName());
+            vectorStore.load(properties.segmentFile());
+        }
+        IngestionManifest manifest = IngestionManifest.read(properties.manifestFile());
+
+        Map<String, Document> desired = readChunks();
+        Set<String> desiredSources = new HashSet<>();
+        desired.values().forEach(chunk -> desiredSources.add(sourceOf(chunk)));
+
+        // Any indexed text can donate its embedding, whoever owns it today.
+        Map<String, String> indexedIdByHash = new HashMap<>();
+        for (var entry : manifest.entries()) {
+            indexedIdByHash.putIfAbsent(entry.contentHash(), entry.id());
+        }
+        Set<String> storedIds = vectorStore.documentIds();
+        for (String id : storedIds) {
+            if (!manifest.contains(id)) {
+                var stored = vectorStore.get(id);
+                if (stored != null) {
+                    indexedIdByHash.putIfAbsent(sha256(stored.text()), id);
+                }
+            }
+        }
+
+        List<Document> toEmbed = new ArrayList<>();
+        List<Document> toReuse = new ArrayList<>();
+        List<float[]> reusedEmbeddings = new ArrayList<>();
+        int unchanged = 0;
+        for (Document chunk : desired.values()) {
+            if (manifest.contains(chunk.getId()) && storedIds.contains(chunk.getId())) {
+                unchanged++;
+                continue;
+            }
+            String donorId = indexedIdByHash.get(hashOf(chunk));
+            var donor = donorId == null ? null : vectorStore.get(donorId);
+            if (donor != null) {
+                toReuse.add(chunk);
+                reusedEmbeddings.add(donor.embedding());
+            } else {
+                toEmbed.add(chunk);
+            }
+        }
+
+        List<String> stale = new ArrayList<>();
+        for (String id : storedIds) {
+            if (!desired.containsKey(id)) {
+                stale.add(id);
+            }
+        }
+
+        // One journal per run: the pipeline appends to it and it is cleared only after the save.
+        try (var checkpoint = new EmbeddingCheckpoint(properties.checkpointFile())) {
+            vectorStore.add(toReuse, reusedEmbeddings);
+            embed(toEmbed, checkpoint);
+            if (!stale.isEmpty()) {
+                vectorStore.delete(stale);
+            }
+
+            IngestionManifest updated = IngestionManifest.empty();
+            desired.values().forEach(chunk ->
+                    updated.put(new IngestionManifest.Entry(chunk.getId(), sourceOf(chunk), hashOf(chunk))));
+            vectorStore.save(properties.segmentFile());
+            updated.write(properties.manifestFile());
+            checkpoint.clear();
+        }
+
+        var report = new IngestionReport(desiredSources.size(), unchanged, toEmbed.size(), toReuse.size(), stale.size());
+        log.info("Document ingestion finished: {}", report);
+        return report;
+    }
+
+    /**
+     * Embeds and stores chunks that have no embedding yet, resuming an interrupted run
+     */
+    void embed(List<Document> chunks, EmbeddingCheckpoint checkpoint) {
+        if (!chunks.isEmpty()) {
+            embeddingPipeline.run(chunks, checkpoint, vectorStore::add);
+        }
+    }
+
+    /**
+     * Reads and splits every configured source into chunks keyed by their deterministic id
+     */
+    private Map<String, Document> readChunks() {
+        Map<String, Document> chunks = new LinkedHashMap<>();
+        TokenTextSplitter splitter = new TokenTextSplitter();
+        for (String location : properties.sources()) {
+            for (Resource resource : resolve(location)) {
+                String source = sourceKey(resource);
+                TextReader reader = new TextReader(resource);
+                reader.getCustomMetadata().put("filename", resource.getFilename());
+                List<Document> documents = reader.read();
+                log.debug("Read {} documents from '{}'", documents.size(), source);
+                for (Document split : splitter.split(documents)) {
+                    String text = split.getText();
+                    String hash = sha256(text);
+                    String id = UUID.nameUUIDFromBytes((source + '\n' + hash).getBytes(StandardCharsets.UTF_8)).toString();
+                    var metadata = new HashMap<>(split.getMetadata());
+                    metadata.put(SOURCE_METADATA, source);
+                    metadata.put(CONTENT_HASH_METADATA, hash);
+                    chunks.putIfAbsent(id, new Document(id, text, metadata));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private Resource[] resolve(String location) {
+        try {
+            Resource[] resources = resourceResolver.getResources(location);
+            if (resources.length == 0) {
+                log.warn("Ingestion source '{}' did not match any resource", location);
+            }
+            return resources;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to resolve ingestion source " + location, e);
+        }
+    }
+
+    private static String sourceKey(Resource resource) {
+        try {
+            return resource.getURI().toString();
+        } catch (IOException _) {
+            return resource.getDescription();
+        }
+    }
+
+    private static String sourceOf(Document chunk) {
+        return (String) chunk.getMetadata().get(SOURCE_METADATA);
+    }
+
+    private static String hashOf(Document chunk) {
+        return (String) chunk.getMetadata().get(CONTENT_HASH_METADATA);
+    }
+
+    static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
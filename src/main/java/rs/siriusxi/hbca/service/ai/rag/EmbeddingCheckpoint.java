@@ -0,0 +1,115 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of embeddings computed by an ingestion run that has not been
+ * persisted yet. Each completed batch is appended and flushed, so after a crash the
+ * next run re-uses those embeddings instead of calling the model again. The journal
+ * is cleared once the vector segment has been saved; closing it without clearing keeps
+ * the journal for the next run.
+ * <p>
+ * Record layout: id length, UTF-8 id, dimensions, float32 values. A record cut short
+ * by a crash is ignored on read.
+ */
+@Log4j2
+final class EmbeddingCheckpoint implements AutoCloseable {
+
+    private final Path path;
+    private DataOutputStream out;
+
+    EmbeddingCheckpoint(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Embeddings by chunk id recorded by a previous, unfinished run
+     */
+    Map<String, float[]> read() {
+        Map<String, float[]> embeddings = new HashMap<>();
+        if (Files.notExists(path)) {
+            return embeddings;
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte[] id = new byte[in.readInt()];
+                in.readFully(id);
+                float[] embedding = new float[in.readInt()];
+                for (int i = 0; i < embedding.length; i++) {
+                    embedding[i] = in.readFloat();
+                }
+                embeddings.put(new String(id, StandardCharsets.UTF_8), embedding);
+            }
+        } catch (EOFException _) {
+            // End of journal, possibly a torn last record.
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read embedding checkpoint " + path, e);
+        }
+        log.info("Resuming ingestion with {} embeddings from checkpoint '{}'", embeddings.size(), path.getFileName());
+        return embeddings;
+    }
+
+    synchronized void append(List<String> ids, List<float[]> embeddings) {
+        try {
+            if (out == null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                byte[] id = ids.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(id.length);
+                out.write(id);
+                float[] embedding = embeddings.get(i);
+                out.writeInt(embedding.length);
+                for (float value : embedding) {
+                    out.writeFloat(value);
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to embedding checkpoint " + path, e);
+        }
+    }
+
+    /**
+     * Deletes the journal once its content is safely in the vector segment
+     */
+    synchronized void clear() {
+        close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete embedding checkpoint " + path, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close embedding checkpoint " + path, e);
+        } finally {
+            out = null;
+        }
+    }
+}
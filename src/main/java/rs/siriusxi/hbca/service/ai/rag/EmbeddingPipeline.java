@@ -0,0 +1,182 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import rs.siriusxi.hbca.config.IngestionProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Embeds ingestion chunks in token-budgeted batches, several batches at a time.
+ * <p>
+ * Behaviour:
+ * - Chunks are grouped greedily so each request stays under the configured token
+ *   budget (estimated with JTokkit) and chunk count; an oversized chunk goes alone.
+ * - Batches run on virtual threads, at most {@code concurrency} in flight, so the
+ *   model's rate limits and the connection pool are respected.
+ * - A failed batch is retried with exponential backoff and jitter; a batch that still
+ *   fails is reported while the other batches complete.
+ * - Every completed batch is handed to the sink and appended to the
+ *   {@link EmbeddingCheckpoint}, so an interrupted run resumes where it stopped.
+ * <p>
+ * Metrics: {@code hbca.rag.ingestion.chunks} (by outcome), {@code hbca.rag.ingestion.retries},
+ * {@code hbca.rag.ingestion.batch} (timer) and the {@code hbca.rag.ingestion.pending} gauge.
+ */
+@Log4j2
+public class EmbeddingPipeline {
+
+    private final EmbeddingModel embeddingModel;
+    private final IngestionProperties.Batching batching;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final Counter embeddedChunks;
+    private final Counter resumedChunks;
+    private final Counter failedChunks;
+    private final Counter retries;
+    private final Timer batchTimer;
+    private final AtomicInteger pendingChunks = new AtomicInteger();
+
+    public EmbeddingPipeline(EmbeddingModel embeddingModel, IngestionProperties.Batching batching,
+                             MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.batching = batching;
+        this.tokenCountEstimator = new JTokkitTokenCountEstimator();
+        this.embeddedChunks = meterRegistry.counter("hbca.rag.ingestion.chunks", "outcome", "embedded");
+        this.resumedChunks = meterRegistry.counter("hbca.rag.ingestion.chunks", "outcome", "resumed");
+        this.failedChunks = meterRegistry.counter("hbca.rag.ingestion.chunks", "outcome", "failed");
+        this.retries = meterRegistry.counter("hbca.rag.ingestion.retries");
+        this.batchTimer = meterRegistry.timer("hbca.rag.ingestion.batch");
+        meterRegistry.gauge("hbca.rag.ingestion.pending", pendingChunks);
+    }
+
+    /**
+     * Embeds the chunks and passes each completed batch with its embeddings to the sink.
+     * The sink may be called concurrently.
+     *
+     * @throws IllegalStateException if some batches still failed after all retries;
+     *                               every other batch has been delivered and checkpointed
+     */
+    void run(List<Document> chunks, EmbeddingCheckpoint checkpoint, BiConsumer<List<Document>, List<float[]>> sink) {
+        Map<String, float[]> resumed = checkpoint.read();
+        List<Document> alreadyEmbedded = new ArrayList<>();
+        List<float[]> resumedEmbeddings = new ArrayList<>();
+        List<Document> remaining = new ArrayList<>();
+        for (Document chunk : chunks) {
+            float[] embedding = resumed.get(chunk.getId());
+            if (embedding != null) {
+                alreadyEmbedded.add(chunk);
+                resumedEmbeddings.add(embedding);
+            } else {
+                remaining.add(chunk);
+            }
+        }
+        if (!alreadyEmbedded.isEmpty()) {
+            sink.accept(alreadyEmbedded, resumedEmbeddings);
+            resumedChunks.increment(alreadyEmbedded.size());
+        }
+
+        List<List<Document>> batches = batches(remaining);
+        log.info("Embedding {} chunks in {} batches ({} resumed from checkpoint)",
+                remaining.size(), batches.size(), alreadyEmbedded.size());
+        pendingChunks.set(remaining.size());
+
+        var permits = new Semaphore(Math.max(1, batching.concurrency()));
+        var failedBatches = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<Document> batch : batches) {
+                executor.submit(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        List<float[]> embeddings = embedWithRetry(batch);
+                        checkpoint.append(batch.stream().map(Document::getId).toList(), embeddings);
+                        sink.accept(batch, embeddings);
+                        embeddedChunks.increment(batch.size());
+                        log.debug("Embedded {} chunks, {} pending", batch.size(), pendingChunks.addAndGet(-batch.size()));
+                    } catch (RuntimeException e) {
+                        failedBatches.incrementAndGet();
+                        failedChunks.increment(batch.size());
+                        pendingChunks.addAndGet(-batch.size());
+                        log.error("Embedding batch of {} chunks failed after {} attempts",
+                                batch.size(), batching.maxAttempts(), e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        if (failedBatches.get() > 0) {
+            throw new IllegalStateException("%d of %d embedding batches failed; completed batches are checkpointed"
+                    .formatted(failedBatches.get(), batches.size()));
+        }
+    }
+
+    /**
+     * Greedy grouping under the token budget and chunk limit, preserving chunk order
+     */
+    List<List<Document>> batches(List<Document> chunks) {
+        List<List<Document>> batches = new ArrayList<>();
+        List<Document> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (Document chunk : chunks) {
+            int tokens = tokenCountEstimator.estimate(chunk.getText());
+            boolean overBudget = currentTokens + tokens > batching.tokenBudget();
+            if (!current.isEmpty() && (overBudget || current.size() >= batching.maxChunks())) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(chunk);
+            currentTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    private List<float[]> embedWithRetry(List<Document> batch) {
+        List<String> texts = batch.stream().map(Document::getText).toList();
+        long backoffMillis = batching.initialBackoff().toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<float[]> embeddings = batchTimer.record(() -> embeddingModel.embed(texts));
+                if (embeddings == null || embeddings.size() != texts.size()) {
+                    throw new IllegalStateException("Embedding model returned %s embeddings for %d texts"
+                            .formatted(embeddings == null ? "no" : embeddings.size(), texts.size()));
+                }
+                return embeddings;
+            } catch (RuntimeException e) {
+                if (attempt >= batching.maxAttempts()) {
+                    throw e;
+                }
+                retries.increment();
+                long delay = backoffMillis + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+                log.warn("Embedding batch attempt {} failed ({}), retrying in {} ms", attempt, e.getMessage(), delay);
+                sleep(delay);
+                backoffMillis *= 2;
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+}
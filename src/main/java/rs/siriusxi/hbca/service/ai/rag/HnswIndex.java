@@ -0,0 +1,327 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Hierarchical Navigable Small World graph over the nodes of a {@link VectorArena}.
+ * <p>
+ * Each node gets a random top layer drawn from an exponential distribution; upper
+ * layers are sparse "express lanes" and layer 0 holds every node. A search descends
+ * greedily through the upper layers and runs a best-first beam of width {@code ef}
+ * on layer 0, so cost grows roughly with {@code log(n)} instead of {@code n}.
+ * <p>
+ * Tuning:
+ * - {@code m}: links per node on upper layers ({@code 2 * m} on layer 0); more links
+ *   raise recall and memory.
+ * - {@code efConstruction}: beam width while inserting; higher builds a better graph, slower.
+ * - {@code efSearch}: beam width while querying; the main recall/latency knob.
+ * <p>
+ * The links can be exported as a {@link Graph} and restored over the same arena, so a
+ * persisted index is reopened without re-inserting every node.
+ * <p>
+ * Not thread-safe; {@link HnswVectorStore} serializes writers and lets readers share.
+ * Deleted nodes stay in the graph as routing points and are filtered from results.
+ */
+final class HnswIndex {
+
+    record Scored(int node, float similarity) {
+    }
+
+    /**
+     * Persisted form of the graph: {@code links[node][layer]} holds the used neighbour ids
+     */
+    record Graph(int m, int entryPoint, int topLayer, int[][][] links) {
+    }
+
+    private static final Comparator<Scored> MOST_SIMILAR_FIRST =
+            Comparator.comparingDouble(Scored::similarity).reversed();
+    private static final Comparator<Scored> LEAST_SIMILAR_FIRST =
+            Comparator.comparingDouble(Scored::similarity);
+
+    private final VectorArena vectors;
+    private final int m;
+    private final int maxLinksLayer0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    /* links.get(node)[layer] holds neighbour ids; linkCounts.get(node)[layer] how many are used. */
+    private final List<int[][]> links = new ArrayList<>();
+    private final List<int[]> linkCounts = new ArrayList<>();
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int topLayer = -1;
+
+    HnswIndex(VectorArena vectors, int m, int efConstruction) {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW 'm' must be at least 2");
+        }
+        this.vectors = vectors;
+        this.m = m;
+        this.maxLinksLayer0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    /**
+     * Rebuilds an index from a persisted graph without computing a single distance.
+     * The arena must hold the graph's nodes in the same order.
+     */
+    static HnswIndex restore(VectorArena vectors, int efConstruction, Graph graph) {
+        if (graph.links().length != vectors.size()) {
+            throw new IllegalArgumentException("Graph has %d nodes but the arena holds %d"
+                    .formatted(graph.links().length, vectors.size()));
+        }
+        HnswIndex index = new HnswIndex(vectors, graph.m(), efConstruction);
+        for (int[][] persisted : graph.links()) {
+            int[][] nodeLinks = new int[persisted.length][];
+            int[] counts = new int[persisted.length];
+            for (int l = 0; l < persisted.length; l++) {
+                nodeLinks[l] = Arrays.copyOf(persisted[l], index.maxLinks(l));
+                counts[l] = persisted[l].length;
+            }
+            index.links.add(nodeLinks);
+            index.linkCounts.add(counts);
+        }
+        index.entryPoint = graph.entryPoint();
+        index.topLayer = graph.topLayer();
+        return index;
+    }
+
+    /**
+     * Exports the links for persistence; node ids are arena positions, so only an index
+     * without tombstones can be written next to a snapshot of its live nodes
+     */
+    Graph graph() {
+        if (deletedCount > 0) {
+            throw new IllegalStateException("Cannot export an HNSW graph holding deleted nodes");
+        }
+        int[][][] exported = new int[links.size()][][];
+        for (int node = 0; node < exported.length; node++) {
+            int[][] nodeLinks = links.get(node);
+            int[] counts = linkCounts.get(node);
+            exported[node] = new int[nodeLinks.length][];
+            for (int l = 0; l < nodeLinks.length; l++) {
+                exported[node][l] = Arrays.copyOf(nodeLinks[l], counts[l]);
+            }
+        }
+        return new Graph(m, entryPoint, topLayer, exported);
+    }
+
+    int size() {
+        return links.size();
+    }
+
+    int liveSize() {
+        return links.size() - deletedCount;
+    }
+
+    int deletedCount() {
+        return deletedCount;
+    }
+
+    boolean isDeleted(int node) {
+        return deleted.get(node);
+    }
+
+    void markDeleted(int node) {
+        if (!deleted.get(node)) {
+            deleted.set(node);
+            deletedCount++;
+        }
+    }
+
+    /**
+     * Links an arena node that has just been added into the graph
+     */
+    void insert(int node) {
+        if (node != links.size()) {
+            throw new IllegalStateException("Nodes must be inserted in arena order");
+        }
+        int layer = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int[][] nodeLinks = new int[layer + 1][];
+        for (int l = 0; l <= layer; l++) {
+            nodeLinks[l] = new int[maxLinks(l)];
+        }
+        links.add(nodeLinks);
+        linkCounts.add(new int[layer + 1]);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLayer = layer;
+            return;
+        }
+
+        float[] query = vectors.vector(node);
+        int current = entryPoint;
+        for (int l = topLayer; l > layer; l--) {
+            current = greedyClosest(query, current, l);
+        }
+        for (int l = Math.min(layer, topLayer); l >= 0; l--) {
+            List<Scored> candidates = searchLayer(query, current, efConstruction, l);
+            List<Scored> selected = selectNeighbours(candidates, m);
+            for (Scored neighbour : selected) {
+                addLink(node, neighbour.node(), l);
+                addLink(neighbour.node(), node, l);
+            }
+            current = candidates.getFirst().node();
+        }
+        if (layer > topLayer) {
+            topLayer = layer;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Returns up to {@code k} live nodes most similar to the unit-length query, best first
+     */
+    List<Scored> search(float[] unitQuery, int k, int ef) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int l = topLayer; l > 0; l--) {
+            current = greedyClosest(unitQuery, current, l);
+        }
+        // Widen the beam by the tombstone ratio so deleted nodes do not starve the result set.
+        int beam = Math.max(ef, k) + (int) ((long) Math.max(ef, k) * deletedCount / Math.max(1, size()));
+        List<Scored> found = searchLayer(unitQuery, current, beam, 0);
+        List<Scored> live = new ArrayList<>(Math.min(k, found.size()));
+        for (Scored candidate : found) {
+            if (!deleted.get(candidate.node())) {
+                live.add(candidate);
+                if (live.size() == k) {
+                    break;
+                }
+            }
+        }
+        return live;
+    }
+
+    private int maxLinks(int layer) {
+        return layer == 0 ? maxLinksLayer0 : m;
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int best = start;
+        float bestSimilarity = vectors.similarity(start, query);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links.get(best)[layer];
+            int count = linkCounts.get(best)[layer];
+            for (int i = 0; i < count; i++) {
+                float similarity = vectors.similarity(neighbours[i], query);
+                if (similarity > bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Best-first beam search on one layer; returns the {@code ef} closest nodes, best first
+     */
+    private List<Scored> searchLayer(float[] query, int start, int ef, int layer) {
+        BitSet visited = new BitSet(links.size());
+        PriorityQueue<Scored> candidates = new PriorityQueue<>(MOST_SIMILAR_FIRST);
+        PriorityQueue<Scored> results = new PriorityQueue<>(LEAST_SIMILAR_FIRST);
+
+        Scored first = new Scored(start, vectors.similarity(start, query));
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Scored candidate = candidates.poll();
+            if (results.size() >= ef && candidate.similarity() < results.peek().similarity()) {
+                break;
+            }
+            int[][] nodeLinks = links.get(candidate.node());
+            if (layer >= nodeLinks.length) {
+                continue;
+            }
+            int[] neighbours = nodeLinks[layer];
+            int count = linkCounts.get(candidate.node())[layer];
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float similarity = vectors.similarity(neighbour, query);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Scored scored = new Scored(neighbour, similarity);
+                    candidates.add(scored);
+                    results.add(scored);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        List<Scored> ordered = new ArrayList<>(results);
+        ordered.sort(MOST_SIMILAR_FIRST);
+        return ordered;
+    }
+
+    /**
+     * Neighbour selection heuristic from the HNSW paper: a candidate is kept only if it is
+     * closer to the base node than to any neighbour already kept, which spreads links across
+     * clusters. Remaining slots are back-filled with the closest pruned candidates.
+     */
+    private List<Scored> selectNeighbours(List<Scored> candidatesBestFirst, int limit) {
+        List<Scored> selected = new ArrayList<>(limit);
+        List<Scored> pruned = new ArrayList<>();
+        for (Scored candidate : candidatesBestFirst) {
+            if (selected.size() >= limit) {
+                break;
+            }
+            boolean diverse = true;
+            for (Scored kept : selected) {
+                if (vectors.similarity(candidate.node(), kept.node()) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : pruned).add(candidate);
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < limit; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void addLink(int from, int to, int layer) {
+        int[] neighbours = links.get(from)[layer];
+        int[] counts = linkCounts.get(from);
+        int count = counts[layer];
+        if (count < neighbours.length) {
+            neighbours[count] = to;
+            counts[layer] = count + 1;
+            return;
+        }
+        // Full: re-select the best links among the existing ones plus the new one.
+        List<Scored> pool = new ArrayList<>(count + 1);
+        for (int i = 0; i < count; i++) {
+            pool.add(new Scored(neighbours[i], vectors.similarity(from, neighbours[i])));
+        }
+        pool.add(new Scored(to, vectors.similarity(from, to)));
+        pool.sort(MOST_SIMILAR_FIRST);
+        List<Scored> kept = selectNeighbours(pool, neighbours.length);
+        for (int i = 0; i < kept.size(); i++) {
+            neighbours[i] = kept.get(i).node();
+        }
+        counts[layer] = kept.size();
+    }
+}
@@ -0,0 +1,414 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import lombok.extern.log4j.Log4j2;
+import org.jspecify.annotations.Nullable;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.observation.conventions.VectorStoreSimilarityMetric;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-process {@link org.springframework.ai.vectorstore.VectorStore} backed by an
+ * approximate-nearest-neighbour {@link HnswIndex} over a contiguous primitive
+ * {@link VectorArena}.
+ * <p>
+ * Replaces the brute-force cosine scan of {@code SimpleVectorStore}: embeddings are
+ * normalized once on insert and kept as packed {@code float}s, and each query visits
+ * a logarithmic slice of the graph instead of every document. The recall/latency
+ * trade-off is set per store with {@code efSearch}.
+ * <p>
+ * Concurrency:
+ * - Searches share a read lock and run in parallel.
+ * - Adds and deletes take the write lock.
+ * - Deletes are tombstones; the graph is rebuilt from the live nodes once more than
+ *   half of it is dead.
+ * <p>
+ * Persistence:
+ * - {@link #save(Path)} writes a binary {@link VectorSegment}; {@link #load(Path)} memory-maps
+ *   it so loaded embeddings are read in place and texts are decoded only for search hits.
+ * - The graph links are saved with the segment and restored on load, so a restart does not
+ *   re-insert every node. A segment saved while the index held tombstones, written by
+ *   {@link VectorSegmentConverter}, or built with a different {@code m} has no usable graph;
+ *   the index is then rebuilt from the mapped embeddings once, and the next save persists it.
+ * <p>
+ * Metadata filters:
+ * - Filter expressions are evaluated in process by {@link MetadataFilter} on the graph hits.
+ * - A filtered search over-fetches {@code topK * 4} candidates with a beam at least as wide,
+ *   and widens by four again until {@code topK} hits match or the graph is exhausted, so a
+ *   selective filter costs more than an unfiltered search but never returns too few hits.
+ * - {@code delete(Filter.Expression)} scans the metadata of every live document.
+ *
+ * @see HnswIndex
+ */
+@Log4j2
+public class HnswVectorStore extends AbstractObservationVectorStore {
+
+    private static final String DB_SYSTEM = "hnsw";
+    private static final int FILTER_OVERSAMPLING = 4;
+
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> nodesById = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    /* Entries are null for nodes still backed by the mapped segment. */
+    private final List<@Nullable String> texts = new ArrayList<>();
+    private final List<@Nullable Map<String, Object>> metadata = new ArrayList<>();
+    private @Nullable VectorSegment segment;
+    private @Nullable VectorArena vectors;
+    private @Nullable HnswIndex index;
+
+    protected HnswVectorStore(Builder builder) {
+        super(builder);
+        this.m = builder.m;
+        this.efConstruction = builder.efConstruction;
+        this.efSearch = builder.efSearch;
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel) {
+        return new Builder(embeddingModel);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index == null ? 0 : index.liveSize();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        List<float[]> embeddings = this.embeddingModel.embed(documents.stream().map(Document::getText).toList());
+        add(documents, embeddings);
+    }
+
+    /**
+     * Adds documents whose embeddings were already computed, e.g. by a batched
+     * ingestion pipeline or a persisted snapshot. Existing ids are replaced.
+     */
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Got %d embeddings for %d documents"
+                    .formatted(embeddings.size(), documents.size()));
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                insert(document.getId(), document.getText(), document.getMetadata(), embeddings.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            idList.forEach(this::remove);
+            if (index != null && index.deletedCount() > index.size() / 2) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void doDelete(Filter.Expression filterExpression) {
+        var filter = new MetadataFilter(filterExpression);
+        lock.writeLock().lock();
+        try {
+            List<String> matching = new ArrayList<>();
+            for (var entry : nodesById.entrySet()) {
+                if (filter.test(metadata(entry.getValue()))) {
+                    matching.add(entry.getKey());
+                }
+            }
+            doDelete(matching);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        float[] query = VectorMath.normalize(this.embeddingModel.embed(request.getQuery()));
+
+        lock.readLock().lock();
+        try {
+            if (index == null || vectors == null) {
+                return List.of();
+            }
+            if (query.length != vectors.dimensions()) {
+                throw new IllegalArgumentException("Index holds embeddings of %d dimensions but the query has %d"
+                        .formatted(vectors.dimensions(), query.length));
+            }
+            if (!request.hasFilterExpression()) {
+                return toDocuments(index.search(query, request.getTopK(), efSearch), request, _ -> true);
+            }
+            var filter = new MetadataFilter(request.getFilterExpression());
+            int candidates = request.getTopK() * FILTER_OVERSAMPLING;
+            while (true) {
+                List<HnswIndex.Scored> hits = index.search(query, candidates, Math.max(efSearch, candidates));
+                List<Document> results = toDocuments(hits, request, filter);
+                boolean exhausted = hits.size() < candidates
+                        || hits.getLast().similarity() < request.getSimilarityThreshold();
+                if (results.size() == request.getTopK() || exhausted) {
+                    return results;
+                }
+                candidates *= FILTER_OVERSAMPLING;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code topK} hits above the similarity threshold whose metadata passes the filter
+     */
+    private List<Document> toDocuments(List<HnswIndex.Scored> hits, SearchRequest request,
+                                       Predicate<Map<String, Object>> filter) {
+        List<Document> results = new ArrayList<>(request.getTopK());
+        for (HnswIndex.Scored hit : hits) {
+            if (hit.similarity() < request.getSimilarityThreshold() || results.size() == request.getTopK()) {
+                break;
+            }
+            if (filter.test(metadata(hit.node()))) {
+                results.add(toDocument(hit));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+        return VectorStoreObservationContext.builder(DB_SYSTEM, operationName)
+                .dimensions(vectors == null ? null : vectors.dimensions())
+                .collectionName("in-memory-hnsw")
+                .similarityMetric(VectorStoreSimilarityMetric.COSINE.value());
+    }
+
+    /**
+     * Saves all live documents and embeddings as a binary {@link VectorSegment}, together
+     * with the graph links when the index holds no tombstones
+     */
+    public void save(Path path) {
+        List<StoredEmbedding> live;
+        HnswIndex.@Nullable Graph graph;
+        lock.readLock().lock();
+        try {
+            live = liveEntries();
+            graph = index != null && index.deletedCount() == 0 ? index.graph() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+        VectorSegment.write(path, live, graph);
+    }
+
+    /**
+     * Replaces the content of this store with a segment written by {@link #save(Path)}.
+     * The file is memory-mapped; only the graph links and document ids live on the heap.
+     */
+    public void load(Path path) {
+        VectorSegment loaded = VectorSegment.open(path);
+        boolean restored;
+        lock.writeLock().lock();
+        try {
+            clear();
+            if (loaded.count() == 0) {
+                loaded.close();
+                return;
+            }
+            segment = loaded;
+            vectors = VectorArena.mapped(loaded.embeddings(), loaded.count(), loaded.dimensions());
+            HnswIndex.Graph graph = loaded.graph();
+            restored = graph != null && graph.m() == m;
+            index = restored
+                    ? HnswIndex.restore(vectors, efConstruction, graph)
+                    : new HnswIndex(vectors, m, efConstruction);
+            for (int node = 0; node < loaded.count(); node++) {
+                String id = loaded.id(node);
+                ids.add(id);
+                texts.add(null);
+                metadata.add(null);
+                if (!restored) {
+                    index.insert(node);
+                }
+                remove(id);
+                nodesById.put(id, node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Mapped {} documents from '{}' into the HNSW index ({})", loaded.count(), path.getFileName(),
+                restored ? "graph restored" : "graph rebuilt");
+    }
+
+    Set<String> documentIds() {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(nodesById.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Nullable StoredEmbedding get(String id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(id);
+            return node == null ? null
+                    : new StoredEmbedding(id, text(node), metadata(node), vectors.vector(node));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<StoredEmbedding> snapshot() {
+        lock.readLock().lock();
+        try {
+            return liveEntries();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Live nodes in node order, which is the order of a persisted graph without tombstones
+     */
+    private List<StoredEmbedding> liveEntries() {
+        List<StoredEmbedding> live = new ArrayList<>(nodesById.size());
+        for (int node = 0; node < ids.size(); node++) {
+            if (!index.isDeleted(node)) {
+                live.add(new StoredEmbedding(ids.get(node), text(node), metadata(node), vectors.vector(node)));
+            }
+        }
+        return live;
+    }
+
+    private void insert(String id, String text, Map<String, Object> documentMetadata, float[] embedding) {
+        if (vectors == null) {
+            vectors = new VectorArena(embedding.length, 1024);
+            index = new HnswIndex(vectors, m, efConstruction);
+        }
+        remove(id);
+        int node = vectors.add(embedding);
+        ids.add(id);
+        texts.add(text);
+        metadata.add(Map.copyOf(documentMetadata));
+        index.insert(node);
+        nodesById.put(id, node);
+    }
+
+    private void remove(String id) {
+        Integer node = nodesById.remove(id);
+        if (node != null) {
+            index.markDeleted(node);
+        }
+    }
+
+    private void rebuild() {
+        List<StoredEmbedding> live = liveEntries();
+        clear();
+        live.forEach(entry -> insert(entry.id(), entry.text(), entry.metadata(), entry.embedding()));
+        log.debug("Rebuilt HNSW index with {} live documents", live.size());
+    }
+
+    private void clear() {
+        nodesById.clear();
+        ids.clear();
+        texts.clear();
+        metadata.clear();
+        vectors = null;
+        index = null;
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private String text(int node) {
+        String text = texts.get(node);
+        return text != null ? text : segment.text(node);
+    }
+
+    private Map<String, Object> metadata(int node) {
+        Map<String, Object> documentMetadata = metadata.get(node);
+        return documentMetadata != null ? documentMetadata : segment.metadata(node);
+    }
+
+    private Document toDocument(HnswIndex.Scored hit) {
+        var documentMetadata = new HashMap<>(metadata(hit.node()));
+        documentMetadata.put(DocumentMetadata.DISTANCE.value(), 1 - hit.similarity());
+        return Document.builder()
+                .id(ids.get(hit.node()))
+                .text(text(hit.node()))
+                .metadata(documentMetadata)
+                .score((double) hit.similarity())
+                .build();
+    }
+
+    public static final class Builder extends AbstractVectorStoreBuilder<Builder> {
+
+        private int m = 16;
+        private int efConstruction = 200;
+        private int efSearch = 64;
+
+        private Builder(EmbeddingModel embeddingModel) {
+            super(embeddingModel);
+        }
+
+        /**
+         * Links per node; higher improves recall at the cost of memory and insert time
+         */
+        public Builder m(int m) {
+            this.m = m;
+            return this;
+        }
+
+        /**
+         * Beam width while building the graph
+         */
+        public Builder efConstruction(int efConstruction) {
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        /**
+         * Beam width while searching; the main recall/latency trade-off
+         */
+        public Builder efSearch(int efSearch) {
+            this.efSearch = efSearch;
+            return this;
+        }
+
+        @Override
+        public HnswVectorStore build() {
+            return new HnswVectorStore(this);
+        }
+    }
+}
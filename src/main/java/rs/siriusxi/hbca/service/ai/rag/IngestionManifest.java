@@ -0,0 +1,83 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Record of every chunk currently in the vector store: chunk id, the source it came
+ * from and the SHA-256 of its text. Stored as a small tab-separated text file next to
+ * the vector segment so ingestion can diff a new run against the previous one.
+ */
+final class IngestionManifest {
+
+    record Entry(String id, String source, String contentHash) {
+    }
+
+    private static final String HEADER = "# hbca ingestion manifest v1";
+
+    private final Map<String, Entry> entriesById;
+
+    private IngestionManifest(Map<String, Entry> entriesById) {
+        this.entriesById = entriesById;
+    }
+
+    static IngestionManifest empty() {
+        return new IngestionManifest(new LinkedHashMap<>());
+    }
+
+    static IngestionManifest read(Path path) {
+        if (Files.notExists(path)) {
+            return empty();
+        }
+        try (var lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            Map<String, Entry> entries = lines
+                    .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                    .map(line -> line.split("\t", 3))
+                    .map(fields -> new Entry(fields[0], fields[1], fields[2]))
+                    .collect(Collectors.toMap(Entry::id, entry -> entry, (first, _) -> first, LinkedHashMap::new));
+            return new IngestionManifest(entries);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read ingestion manifest " + path, e);
+        }
+    }
+
+    void write(Path path) {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Entry entry : entriesById.values()) {
+                    writer.write(entry.id() + '\t' + entry.source() + '\t' + entry.contentHash());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write ingestion manifest " + path, e);
+        }
+    }
+
+    boolean contains(String id) {
+        return entriesById.containsKey(id);
+    }
+
+    Collection<Entry> entries() {
+        return entriesById.values();
+    }
+
+    void put(Entry entry) {
+        entriesById.put(entry.id(), entry);
+    }
+}
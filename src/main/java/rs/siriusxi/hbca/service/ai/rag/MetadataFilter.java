@@ -0,0 +1,109 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates a portable {@link Filter.Expression} against a document's metadata map,
+ * for stores that filter search hits in process.
+ * <p>
+ * Semantics:
+ * - Numbers compare by value regardless of their boxed type, strings lexicographically.
+ * - A comparison against a missing key or a value of another type is false
+ *   ({@code NE} is its negation, so it is true).
+ * - {@code IN}/{@code NIN} take a collection value.
+ */
+final class MetadataFilter implements Predicate<Map<String, Object>> {
+
+    private final Filter.Expression expression;
+
+    MetadataFilter(Filter.Expression expression) {
+        this.expression = expression;
+    }
+
+    @Override
+    public boolean test(Map<String, Object> metadata) {
+        return evaluate(expression, metadata);
+    }
+
+    private static boolean evaluate(Filter.Operand operand, Map<String, Object> metadata) {
+        return switch (operand) {
+            case Filter.Expression expression -> evaluate(expression, metadata);
+            case Filter.Group group -> evaluate(group.content(), metadata);
+            default -> throw new IllegalArgumentException("Expected a boolean operand but got " + operand);
+        };
+    }
+
+    private static boolean evaluate(Filter.Expression expression, Map<String, Object> metadata) {
+        return switch (expression.type()) {
+            case AND -> evaluate(expression.left(), metadata) && evaluate(expression.right(), metadata);
+            case OR -> evaluate(expression.left(), metadata) || evaluate(expression.right(), metadata);
+            case NOT -> !evaluate(expression.left(), metadata);
+            case EQ -> compares(expression, metadata, order -> order == 0);
+            case NE -> !compares(expression, metadata, order -> order == 0);
+            case GT -> compares(expression, metadata, order -> order > 0);
+            case GTE -> compares(expression, metadata, order -> order >= 0);
+            case LT -> compares(expression, metadata, order -> order < 0);
+            case LTE -> compares(expression, metadata, order -> order <= 0);
+            case IN -> contains(expression, metadata);
+            case NIN -> !contains(expression, metadata);
+            default -> throw new IllegalArgumentException("Unsupported filter operation " + expression.type());
+        };
+    }
+
+    /**
+     * Tests the ordering of the metadata value against the expression value; values that
+     * cannot be compared fail every operator
+     */
+    private static boolean compares(Filter.Expression expression, Map<String, Object> metadata, IntPredicate test) {
+        @Nullable Object actual = metadata.get(key(expression.left()));
+        @Nullable Object expected = value(expression.right());
+        if (actual instanceof Number a && expected instanceof Number b) {
+            return test.test(Double.compare(a.doubleValue(), b.doubleValue()));
+        }
+        if (actual instanceof String a && expected instanceof String b) {
+            return test.test(a.compareTo(b));
+        }
+        return actual != null && Objects.equals(actual, expected) && test.test(0);
+    }
+
+    private static boolean contains(Filter.Expression expression, Map<String, Object> metadata) {
+        @Nullable Object actual = metadata.get(key(expression.left()));
+        if (actual == null || !(value(expression.right()) instanceof Collection<?> candidates)) {
+            return false;
+        }
+        for (Object candidate : candidates) {
+            boolean equal = actual instanceof Number a && candidate instanceof Number b
+                    ? Double.compare(a.doubleValue(), b.doubleValue()) == 0
+                    : actual.equals(candidate);
+            if (equal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String key(Filter.Operand operand) {
+        if (!(operand instanceof Filter.Key(String key))) {
+            throw new IllegalArgumentException("Expected a metadata key but got " + operand);
+        }
+        // Keys parsed from the text filter language may keep their quotes.
+        if (key.length() > 1 && (key.startsWith("'") && key.endsWith("'") || key.startsWith("\"") && key.endsWith("\""))) {
+            return key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+
+    private static @Nullable Object value(Filter.@Nullable Operand operand) {
+        if (!(operand instanceof Filter.Value(Object value))) {
+            throw new IllegalArgumentException("Expected a value but got " + operand);
+        }
+        return value;
+    }
+}
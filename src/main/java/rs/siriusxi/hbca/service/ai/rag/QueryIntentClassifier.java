@@ -0,0 +1,78 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Cheap, local classification of a user message deciding whether the booking terms are
+ * worth retrieving for it.
+ * <p>
+ * Rules, in order:
+ * - A question about terms (fees, policies, whether something is allowed, "how", "can I")
+ *   is {@link Intent#INFORMATIONAL}, even when it names a booking.
+ * - Asking to cancel, change, modify or upgrade a booking is a {@link Intent#BOOKING_CHANGE}.
+ *   The model must check the change against the terms and quote its charges, so these
+ *   turns retrieve too.
+ * - Asking to show, find or look up a booking, or naming only a booking number, is a
+ *   {@link Intent#BOOKING_LOOKUP}: tools answer it.
+ * - A short greeting, thanks or confirmation ("yes", "ok") is {@link Intent#SMALL_TALK}.
+ * - Anything else is informational.
+ * <p>
+ * Only lookups and small talk go without terms. Chat memory keeps the original,
+ * un-augmented user messages, so terms retrieved on an earlier turn are not available
+ * to later ones.
+ */
+public class QueryIntentClassifier {
+
+    public enum Intent {
+        INFORMATIONAL, BOOKING_CHANGE, BOOKING_LOOKUP, SMALL_TALK;
+
+        /**
+         * Whether the booking terms can matter for the answer
+         */
+        public boolean needsTerms() {
+            return this == INFORMATIONAL || this == BOOKING_CHANGE;
+        }
+    }
+
+    private static final Pattern TERMS_QUESTION = Pattern.compile(
+            "\\b(polic(y|ies)|terms?|fees?|charges?|cost|price|refund|penalt(y|ies)|allowed|permitted|rules?"
+                    + "|deadline|how|why|what (is|are|if)|can i|may i|is it possible|do you)\\b");
+    private static final Pattern BOOKING_CHANGE = Pattern.compile(
+            "\\b(cancel\\w*|change|modify|upgrade|downgrade|switch|move|extend|shorten|rebook|reschedule)\\b");
+    private static final Pattern BOOKING_LOOKUP = Pattern.compile("\\b(show|find|look ?up|details?|status)\\b");
+    private static final Pattern BOOKING_NUMBER = Pattern.compile("\\b(booking|reservation|number|#)?\\s*\\d{3,}\\b");
+    private static final Pattern SMALL_TALK = Pattern.compile(
+            "^(hi|hello|hey|thanks?|thank you|ok(ay)?|yes|no|sure|great|bye|goodbye|good (morning|evening)"
+                    + "|please do|go ahead|that'?s all)\\b[\\s!.,]*\\w*[\\s!.]*$");
+
+    public Intent classify(String message) {
+        String text = message.toLowerCase(Locale.ROOT).strip();
+        if (text.isEmpty()) {
+            return Intent.SMALL_TALK;
+        }
+        if (TERMS_QUESTION.matcher(text).find()) {
+            return Intent.INFORMATIONAL;
+        }
+        if (BOOKING_CHANGE.matcher(text).find()) {
+            return Intent.BOOKING_CHANGE;
+        }
+        if (BOOKING_NUMBER.matcher(text).find() || BOOKING_LOOKUP.matcher(text).find()) {
+            return Intent.BOOKING_LOOKUP;
+        }
+        if (SMALL_TALK.matcher(text).find()) {
+            return Intent.SMALL_TALK;
+        }
+        return Intent.INFORMATIONAL;
+    }
+
+    /**
+     * Rough number of questions asked, e.g. "Can I bring pets and is breakfast included?" is two
+     */
+    int questions(String message) {
+        String text = message.toLowerCase(Locale.ROOT);
+        int questions = Math.max(1, (int) text.chars().filter(c -> c == '?').count());
+        questions += text.split("\\b(and|also|as well as)\\b", -1).length - 1;
+        return questions;
+    }
+}
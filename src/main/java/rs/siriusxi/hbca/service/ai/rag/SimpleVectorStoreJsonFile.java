@@ -0,0 +1,30 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Reads the JSON file format of {@link SimpleVectorStore}, so stores persisted
+ * before the binary segment format can be converted without re-embedding.
+ * <p>
+ * The embedding model is never called; it is only required to build the
+ * underlying {@link SimpleVectorStore}.
+ */
+final class SimpleVectorStoreJsonFile extends SimpleVectorStore {
+
+    private SimpleVectorStoreJsonFile(EmbeddingModel embeddingModel) {
+        super(SimpleVectorStore.builder(embeddingModel));
+    }
+
+    static List<StoredEmbedding> read(File file, EmbeddingModel embeddingModel) {
+        var jsonFile = new SimpleVectorStoreJsonFile(embeddingModel);
+        jsonFile.load(file);
+        return jsonFile.store.values().stream()
+                .map(content -> new StoredEmbedding(content.getId(), content.getText(),
+                        content.getMetadata(), content.getEmbedding()))
+                .toList();
+    }
+}
@@ -0,0 +1,9 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import java.util.Map;
+
+/**
+ * A document chunk together with its embedding, as exchanged with persistence formats.
+ */
+record StoredEmbedding(String id, String text, Map<String, Object> metadata, float[] embedding) {
+}
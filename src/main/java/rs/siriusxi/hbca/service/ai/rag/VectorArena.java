@@ -0,0 +1,103 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+
+/**
+ * Contiguous storage for unit-length embeddings laid out back to back.
+ * <p>
+ * Node {@code n} occupies {@code [n * dimensions, (n + 1) * dimensions)}, so a scan
+ * over neighbours walks primitive memory instead of chasing boxed {@code Double}s.
+ * <p>
+ * An arena may start from a memory-mapped base (the embedding block of a
+ * {@link VectorSegment}); those nodes are read straight from the page cache and
+ * nodes added afterwards go to a growable on-heap {@code float[]}.
+ * <p>
+ * Not thread-safe; {@link HnswVectorStore} guards it with its read/write lock.
+ */
+final class VectorArena {
+
+    private final int dimensions;
+    private final MemorySegment base;
+    private final int baseCount;
+    private float[] data;
+    private int heapCount;
+
+    VectorArena(int dimensions, int initialCapacity) {
+        this(dimensions, MemorySegment.NULL, 0, initialCapacity);
+    }
+
+    private VectorArena(int dimensions, MemorySegment base, int baseCount, int initialCapacity) {
+        this.dimensions = dimensions;
+        this.base = base;
+        this.baseCount = baseCount;
+        this.data = new float[Math.max(1, initialCapacity) * dimensions];
+    }
+
+    /**
+     * Wraps already-normalized little-endian float32 embeddings, e.g. a mapped segment block
+     */
+    static VectorArena mapped(MemorySegment embeddings, int count, int dimensions) {
+        return new VectorArena(dimensions, embeddings, count, 64);
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int size() {
+        return baseCount + heapCount;
+    }
+
+    /**
+     * Copies and normalizes the vector into the arena and returns its node id
+     */
+    int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected embedding of %d dimensions but got %d"
+                    .formatted(dimensions, vector.length));
+        }
+        int offset = heapCount * dimensions;
+        if (offset + dimensions > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, offset + dimensions));
+        }
+        System.arraycopy(VectorMath.normalize(vector.clone()), 0, data, offset, dimensions);
+        heapCount++;
+        return baseCount + heapCount - 1;
+    }
+
+    float similarity(int node, float[] unitQuery) {
+        if (node < baseCount) {
+            return VectorMath.dot(base, byteOffset(node), unitQuery, 0, dimensions);
+        }
+        return VectorMath.dot(data, heapOffset(node), unitQuery, 0, dimensions);
+    }
+
+    float similarity(int a, int b) {
+        if (a >= baseCount && b >= baseCount) {
+            return VectorMath.dot(data, heapOffset(a), data, heapOffset(b), dimensions);
+        }
+        if (a < baseCount && b < baseCount) {
+            return VectorMath.dot(base, byteOffset(a), base, byteOffset(b), dimensions);
+        }
+        int mappedNode = Math.min(a, b);
+        int heapNode = Math.max(a, b);
+        return VectorMath.dot(base, byteOffset(mappedNode), data, heapOffset(heapNode), dimensions);
+    }
+
+    float[] vector(int node) {
+        if (node < baseCount) {
+            return VectorMath.read(base, byteOffset(node), dimensions);
+        }
+        int offset = heapOffset(node);
+        return Arrays.copyOfRange(data, offset, offset + dimensions);
+    }
+
+    private long byteOffset(int node) {
+        return (long) node * dimensions * Float.BYTES;
+    }
+
+    private int heapOffset(int node) {
+        return (node - baseCount) * dimensions;
+    }
+}
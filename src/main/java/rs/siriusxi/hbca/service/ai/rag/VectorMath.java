@@ -0,0 +1,98 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * Primitive {@code float} kernels used by the vector index and the semantic response cache.
+ * <p>
+ * The dot product is unrolled over four independent accumulators. Floating-point
+ * addition is not associative, so the JIT will not reorder a single-accumulator
+ * reduction into SIMD lanes on its own; splitting the sum removes that dependency
+ * chain and lets C2 keep several lanes in flight. The Vector API would go further,
+ * but it is still an incubator module and would need {@code --add-modules} on every
+ * launch path.
+ */
+public final class VectorMath {
+
+    /* Segment files are always little-endian, whatever the platform. */
+    static final ValueLayout.OfFloat FLOAT_LE =
+            ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private VectorMath() {
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static float dot(MemorySegment a, long aByteOffset, float[] b, int bOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            long at = aByteOffset + (long) i * Float.BYTES;
+            s0 += a.get(FLOAT_LE, at) * b[bOffset + i];
+            s1 += a.get(FLOAT_LE, at + 4) * b[bOffset + i + 1];
+            s2 += a.get(FLOAT_LE, at + 8) * b[bOffset + i + 2];
+            s3 += a.get(FLOAT_LE, at + 12) * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a.get(FLOAT_LE, aByteOffset + (long) i * Float.BYTES) * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static float dot(MemorySegment a, long aByteOffset, MemorySegment b, long bByteOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            long delta = (long) i * Float.BYTES;
+            s0 += a.get(FLOAT_LE, aByteOffset + delta) * b.get(FLOAT_LE, bByteOffset + delta);
+            s1 += a.get(FLOAT_LE, aByteOffset + delta + 4) * b.get(FLOAT_LE, bByteOffset + delta + 4);
+            s2 += a.get(FLOAT_LE, aByteOffset + delta + 8) * b.get(FLOAT_LE, bByteOffset + delta + 8);
+            s3 += a.get(FLOAT_LE, aByteOffset + delta + 12) * b.get(FLOAT_LE, bByteOffset + delta + 12);
+        }
+        for (; i < length; i++) {
+            long delta = (long) i * Float.BYTES;
+            s0 += a.get(FLOAT_LE, aByteOffset + delta) * b.get(FLOAT_LE, bByteOffset + delta);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static float[] read(MemorySegment segment, long byteOffset, int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = segment.get(FLOAT_LE, byteOffset + (long) i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    /**
+     * Scales the vector in place to unit length, so cosine similarity becomes a plain dot product
+     */
+    public static float[] normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, 0, vector, 0, vector.length));
+        if (norm > 0f) {
+            float inverse = 1f / norm;
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= inverse;
+            }
+        }
+        return vector;
+    }
+}
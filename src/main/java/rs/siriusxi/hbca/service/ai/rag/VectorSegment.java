@@ -0,0 +1,387 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, memory-mappable binary file holding a vector store snapshot.
+ * <p>
+ * Layout (all numbers little-endian):
+ * <pre>
+ * header      64 bytes   magic "HBVS", version, dimensions, count,
+ *                        embeddings offset, record-offsets offset, records offset,
+ *                        graph offset (0 when absent)
+ * embeddings  count * dimensions float32, unit length, 64-byte aligned
+ * offsets     (count + 1) int64, start of each record inside the records block
+ * records     per document: id, metadata entries, text (length-prefixed UTF-8)
+ * graph       optional HNSW links: m, entry point, top layer, then per node its
+ *             layer count and per layer the link count followed by neighbour ids
+ * </pre>
+ * {@link #open(Path)} maps the file with {@link FileChannel#map} into a shared
+ * {@link Arena}; the embedding block is used in place from the page cache and
+ * records are decoded only when a search hit needs them.
+ * <p>
+ * Version 1 files have no graph offset and are still read; the index is then
+ * rebuilt from the embeddings.
+ * <p>
+ * Metadata values of type {@link String}, {@link Integer}, {@link Long},
+ * {@link Double}, {@link Float} and {@link Boolean} round-trip; anything else is
+ * stored as its {@code toString()}.
+ */
+final class VectorSegment implements AutoCloseable {
+
+    private static final int MAGIC = 0x53564248; // "HBVS" read little-endian
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_GRAPH = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int ALIGNMENT = 64;
+
+    private static final byte STRING = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte FLOAT = 4;
+    private static final byte BOOLEAN = 5;
+
+    private static final ValueLayout.OfInt INT_LE = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG_LE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final Arena arena;
+    private final MemorySegment file;
+    private final int dimensions;
+    private final int count;
+    private final MemorySegment embeddings;
+    private final long offsetsStart;
+    private final long recordsStart;
+    private final long graphStart;
+
+    private VectorSegment(Arena arena, MemorySegment file) {
+        this.arena = arena;
+        this.file = file;
+        if (file.byteSize() < HEADER_BYTES || file.get(INT_LE, 0) != MAGIC) {
+            throw new IllegalStateException("Not a vector segment file");
+        }
+        int version = file.get(INT_LE, 4);
+        if (version != VERSION && version != VERSION_WITHOUT_GRAPH) {
+            throw new IllegalStateException("Unsupported vector segment version " + version);
+        }
+        this.dimensions = file.get(INT_LE, 8);
+        this.count = file.get(INT_LE, 12);
+        long embeddingsStart = file.get(LONG_LE, 16);
+        this.offsetsStart = file.get(LONG_LE, 24);
+        this.recordsStart = file.get(LONG_LE, 32);
+        this.graphStart = version == VERSION ? file.get(LONG_LE, 40) : 0;
+        this.embeddings = file.asSlice(embeddingsStart, (long) count * dimensions * Float.BYTES);
+    }
+
+    /**
+     * Maps an existing segment file read-only; closing the segment unmaps it
+     */
+    static VectorSegment open(Path path) {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MemorySegment mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            return new VectorSegment(arena, mapped);
+        } catch (IOException e) {
+            arena.close();
+            throw new UncheckedIOException("Failed to map vector segment " + path, e);
+        } catch (RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes entries without a graph; {@link HnswVectorStore#load(Path)} builds one on open
+     */
+    static void write(Path path, List<StoredEmbedding> entries) {
+        write(path, entries, null);
+    }
+
+    /**
+     * Writes entries to a temporary sibling file and atomically moves it over {@code path}.
+     * A graph, when given, must index exactly these entries in this order.
+     */
+    static void write(Path path, List<StoredEmbedding> entries, HnswIndex.@Nullable Graph graph) {
+        int dimensions = entries.isEmpty() ? 0 : entries.getFirst().embedding().length;
+        int count = entries.size();
+        if (graph != null && graph.links().length != count) {
+            throw new IllegalArgumentException("Graph has %d nodes for %d entries"
+                    .formatted(graph.links().length, count));
+        }
+        long embeddingsStart = HEADER_BYTES;
+        long embeddingBytes = (long) count * dimensions * Float.BYTES;
+        long offsetsStart = align(embeddingsStart + embeddingBytes);
+        long recordsStart = offsetsStart + (long) (count + 1) * Long.BYTES;
+
+        byte[][] records = new byte[count][];
+        long[] offsets = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            records[i] = encodeRecord(entries.get(i));
+            offsets[i + 1] = offsets[i] + records[i].length;
+        }
+        long graphStart = graph == null ? 0 : recordsStart + offsets[count];
+
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(count)
+                        .putLong(embeddingsStart).putLong(offsetsStart).putLong(recordsStart)
+                        .putLong(graphStart);
+                out.write(header.array());
+
+                ByteBuffer vector = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (StoredEmbedding entry : entries) {
+                    if (entry.embedding().length != dimensions) {
+                        throw new IllegalArgumentException("Mixed embedding dimensions in vector store snapshot");
+                    }
+                    vector.clear();
+                    for (float value : VectorMath.normalize(entry.embedding().clone())) {
+                        vector.putFloat(value);
+                    }
+                    out.write(vector.array());
+                }
+                out.write(new byte[(int) (offsetsStart - embeddingsStart - embeddingBytes)]);
+
+                ByteBuffer offsetBlock = ByteBuffer.allocate((count + 1) * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (long offset : offsets) {
+                    offsetBlock.putLong(offset);
+                }
+                out.write(offsetBlock.array());
+                for (byte[] record : records) {
+                    out.write(record);
+                }
+                if (graph != null) {
+                    writeGraph(out, graph);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write vector segment " + path, e);
+        }
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * Mapped embedding block: {@code count * dimensions} unit-length little-endian floats
+     */
+    MemorySegment embeddings() {
+        return embeddings;
+    }
+
+    /**
+     * Decodes the persisted HNSW links, or returns {@code null} when the file has none
+     */
+    HnswIndex.@Nullable Graph graph() {
+        if (graphStart == 0) {
+            return null;
+        }
+        RecordReader reader = new RecordReader(graphStart);
+        int m = reader.readInt();
+        int entryPoint = reader.readInt();
+        int topLayer = reader.readInt();
+        int[][][] links = new int[count][][];
+        for (int node = 0; node < count; node++) {
+            links[node] = new int[reader.readInt()][];
+            for (int layer = 0; layer < links[node].length; layer++) {
+                int[] neighbours = new int[reader.readInt()];
+                for (int i = 0; i < neighbours.length; i++) {
+                    neighbours[i] = reader.readInt();
+                }
+                links[node][layer] = neighbours;
+            }
+        }
+        return new HnswIndex.Graph(m, entryPoint, topLayer, links);
+    }
+
+    String id(int index) {
+        return new RecordReader(recordStart(index)).string();
+    }
+
+    Map<String, Object> metadata(int index) {
+        RecordReader reader = new RecordReader(recordStart(index));
+        reader.skipString();
+        return reader.metadata();
+    }
+
+    String text(int index) {
+        RecordReader reader = new RecordReader(recordStart(index));
+        reader.skipString();
+        reader.metadata();
+        return reader.string();
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private long recordStart(int index) {
+        return recordsStart + file.get(LONG_LE, offsetsStart + (long) index * Long.BYTES);
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static void writeGraph(OutputStream target, HnswIndex.Graph graph) throws IOException {
+        var out = new LittleEndianOutput(target);
+        out.writeInt(Integer.reverseBytes(graph.m()));
+        out.writeInt(Integer.reverseBytes(graph.entryPoint()));
+        out.writeInt(Integer.reverseBytes(graph.topLayer()));
+        for (int[][] nodeLinks : graph.links()) {
+            out.writeInt(Integer.reverseBytes(nodeLinks.length));
+            for (int[] neighbours : nodeLinks) {
+                out.writeInt(Integer.reverseBytes(neighbours.length));
+                for (int neighbour : neighbours) {
+                    out.writeInt(Integer.reverseBytes(neighbour));
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static byte[] encodeRecord(StoredEmbedding entry) {
+        var bytes = new ByteArrayOutputStream(entry.text().length() + 64);
+        try (var out = new LittleEndianOutput(bytes)) {
+            out.string(entry.id());
+            out.writeInt(Integer.reverseBytes(entry.metadata().size()));
+            for (var metadataEntry : entry.metadata().entrySet()) {
+                out.string(metadataEntry.getKey());
+                switch (metadataEntry.getValue()) {
+                    case Integer value -> {
+                        out.writeByte(INT);
+                        out.writeInt(Integer.reverseBytes(value));
+                    }
+                    case Long value -> {
+                        out.writeByte(LONG);
+                        out.writeLong(Long.reverseBytes(value));
+                    }
+                    case Double value -> {
+                        out.writeByte(DOUBLE);
+                        out.writeLong(Long.reverseBytes(Double.doubleToRawLongBits(value)));
+                    }
+                    case Float value -> {
+                        out.writeByte(FLOAT);
+                        out.writeInt(Integer.reverseBytes(Float.floatToRawIntBits(value)));
+                    }
+                    case Boolean value -> {
+                        out.writeByte(BOOLEAN);
+                        out.writeBoolean(value);
+                    }
+                    case Object value -> {
+                        out.writeByte(STRING);
+                        out.string(value.toString());
+                    }
+                }
+            }
+            out.string(entry.text());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * {@link DataOutputStream} is big-endian; callers reverse bytes, this adds the string encoding
+     */
+    private static final class LittleEndianOutput extends DataOutputStream {
+
+        LittleEndianOutput(OutputStream out) {
+            super(out);
+        }
+
+        void string(String value) throws IOException {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(Integer.reverseBytes(utf8.length));
+            write(utf8);
+        }
+    }
+
+    /**
+     * Sequential decoder over one mapped record
+     */
+    private final class RecordReader {
+
+        private long position;
+
+        RecordReader(long position) {
+            this.position = position;
+        }
+
+        int readInt() {
+            int value = file.get(INT_LE, position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        long readLong() {
+            long value = file.get(LONG_LE, position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        byte readByte() {
+            return file.get(ValueLayout.JAVA_BYTE, position++);
+        }
+
+        String string() {
+            int length = readInt();
+            byte[] utf8 = file.asSlice(position, length).toArray(ValueLayout.JAVA_BYTE);
+            position += length;
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        void skipString() {
+            position += readInt();
+        }
+
+        Map<String, Object> metadata() {
+            int size = readInt();
+            Map<String, Object> metadata = HashMap.newHashMap(size);
+            for (int i = 0; i < size; i++) {
+                String key = string();
+                Object value = switch (readByte()) {
+                    case INT -> readInt();
+                    case LONG -> readLong();
+                    case DOUBLE -> Double.longBitsToDouble(readLong());
+                    case FLOAT -> Float.intBitsToFloat(readInt());
+                    case BOOLEAN -> readByte() != 0;
+                    default -> string();
+                };
+                metadata.put(key, value);
+            }
+            return metadata;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * One-time migration of a {@code SimpleVectorStore} JSON file to the binary
+ * {@link VectorSegment} format read by {@link HnswVectorStore#load(Path)}.
+ * Embeddings are copied as stored; nothing is re-embedded.
+ */
+@Log4j2
+public final class VectorSegmentConverter {
+
+    private VectorSegmentConverter() {
+    }
+
+    public static void convertSimpleVectorStoreJson(File jsonFile, Path segmentFile, EmbeddingModel embeddingModel) {
+        var entries = SimpleVectorStoreJsonFile.read(jsonFile, embeddingModel);
+        VectorSegment.write(segmentFile, entries);
+        log.info("Converted {} documents from '{}' to binary segment '{}'",
+                entries.size(), jsonFile.getName(), segmentFile.getFileName());
+    }
+}
@@ -0,0 +1,40 @@
+package rs.siriusxi.hbca.service.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries booking cache invalidations between application nodes.
+ * <p>
+ * After a booking change commits, the {@link BookingDetailCache} drops its own entry and
+ * publishes the booking number here; numbers received from other nodes are dropped the
+ * same way. A multi-node deployment registers its own bean backed by a message broker
+ * (e.g. Redis pub/sub or Postgres {@code LISTEN/NOTIFY}); the default keeps
+ * invalidations on the local node.
+ */
+public interface BookingCacheInvalidationChannel {
+
+    /**
+     * Tells the other nodes that the booking changed
+     */
+    void publish(String bookingNumber);
+
+    /**
+     * Registers the listener for booking numbers changed on other nodes
+     */
+    void subscribe(Consumer<String> listener);
+
+    /**
+     * Channel of a single-node deployment: there is nobody to tell
+     */
+    static BookingCacheInvalidationChannel local() {
+        return new BookingCacheInvalidationChannel() {
+            @Override
+            public void publish(String bookingNumber) {
+            }
+
+            @Override
+            public void subscribe(Consumer<String> listener) {
+            }
+        };
+    }
+}
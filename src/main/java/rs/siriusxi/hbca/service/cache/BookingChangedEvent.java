@@ -0,0 +1,8 @@
+package rs.siriusxi.hbca.service.cache;
+
+/**
+ * Published inside the transaction that changes a booking; cached copies are dropped
+ * once it commits.
+ */
+public record BookingChangedEvent(String bookingNumber) {
+}
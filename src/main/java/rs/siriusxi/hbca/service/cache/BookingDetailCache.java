@@ -0,0 +1,117 @@
+package rs.siriusxi.hbca.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import rs.siriusxi.hbca.config.BookingCacheProperties;
+import rs.siriusxi.hbca.ui.dto.HotelBookingDetail;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-evicting read-through cache of {@link HotelBookingDetail} keyed by
+ * booking number.
+ * <p>
+ * Behaviour:
+ * - Lookups load missing bookings through the given loader; unknown bookings are not cached.
+ * - A {@link BookingChangedEvent} drops the entry once its transaction commits, so a
+ *   rolled back change never evicts anything. Caffeine waits for a load of the same
+ *   booking that is still in flight and drops its result too.
+ * - Bulk lookups load the missing bookings outside Caffeine; their results are only
+ *   cached if no invalidation happened since the load started, so an eviction racing
+ *   with a bulk load can never be undone by a stale entry.
+ * - Invalidations are forwarded to the {@link BookingCacheInvalidationChannel}, and
+ *   those received from other nodes are applied locally.
+ * - When disabled, every lookup goes to the loader.
+ * <p>
+ * Metrics: Caffeine statistics (hits, misses, evictions, size) under
+ * {@code hbca.bookings.details}.
+ */
+@Log4j2
+public class BookingDetailCache {
+
+    private static final String CACHE_NAME = "hbca.bookings.details";
+
+    private final boolean enabled;
+    private final Cache<String, HotelBookingDetail> bookings;
+    private final BookingCacheInvalidationChannel invalidationChannel;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public BookingDetailCache(BookingCacheProperties properties, BookingCacheInvalidationChannel invalidationChannel,
+                              MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.bookings = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfter())
+                .recordStats()
+                .build();
+        this.invalidationChannel = invalidationChannel;
+        CaffeineCacheMetrics.monitor(meterRegistry, bookings, CACHE_NAME);
+        invalidationChannel.subscribe(this::evict);
+    }
+
+    /**
+     * Cached booking, or the one found by the loader
+     */
+    public Optional<HotelBookingDetail> get(String bookingNumber,
+                                            Function<String, Optional<HotelBookingDetail>> loader) {
+        if (!enabled) {
+            return loader.apply(bookingNumber);
+        }
+        return Optional.ofNullable(bookings.get(bookingNumber, number -> loader.apply(number).orElse(null)));
+    }
+
+    /**
+     * Cached bookings, the missing ones loaded with one loader call; unknown numbers are skipped
+     */
+    public List<HotelBookingDetail> getAll(Collection<String> bookingNumbers,
+                                           Function<Set<String>, List<HotelBookingDetail>> loader) {
+        if (!enabled) {
+            return loader.apply(Set.copyOf(bookingNumbers));
+        }
+        Map<String, HotelBookingDetail> found = new LinkedHashMap<>(bookings.getAllPresent(bookingNumbers));
+        Set<String> missing = new HashSet<>(bookingNumbers);
+        missing.removeAll(found.keySet());
+        if (!missing.isEmpty()) {
+            long generation = invalidations.get();
+            for (HotelBookingDetail booking : loader.apply(missing)) {
+                found.put(booking.bookingNumber(), booking);
+                // Runs under the entry's lock, which an invalidation of the same booking waits for.
+                bookings.asMap().computeIfAbsent(booking.bookingNumber(),
+                        _ -> invalidations.get() == generation ? booking : null);
+            }
+        }
+        return List.copyOf(found.values());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    void onBookingChanged(BookingChangedEvent event) {
+        evict(event.bookingNumber());
+        try {
+            invalidationChannel.publish(event.bookingNumber());
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish invalidation of booking {}, other nodes keep it until it expires",
+                    event.bookingNumber(), e);
+        }
+    }
+
+    /**
+     * Drops the cached booking on this node only
+     */
+    public void evict(String bookingNumber) {
+        invalidations.incrementAndGet();
+        bookings.invalidate(bookingNumber);
+    }
+}
@@ -6,6 +6,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import reactor.core.publisher.Flux;
 import rs.siriusxi.hbca.service.ai.CustomerSupportAssistant;
+import rs.siriusxi.hbca.service.ai.admission.ChatAdmissionController;
 
 /**
  * A UI service class that facilitates chat-based interactions between users
@@ -25,12 +26,16 @@ import rs.siriusxi.hbca.service.ai.CustomerSupportAssistant;
  *   annotations.
  * - Provides streaming chat responses using reactive programming constructs
  *   via the {@link Flux} return type.
+ * - Coalesces streamed fragments into fewer push messages with the {@link StreamCoalescer}.
+ * - Admits turns through the {@link ChatAdmissionController}: rate limited, one at a
+ *   time per chat session, and shed when the model is overloaded.
  *
  * Annotations:
  * - {@code @BrowserCallable}: Marks the class as callable from a browser client.
  * - {@code @AnonymousAllowed}: Permits access by unauthenticated users.
  * - {@code @RequiredArgsConstructor}: Automatically injects the required
- *   {@link CustomerSupportAssistant} dependency via constructor.
+ *   {@link CustomerSupportAssistant}, {@link ChatAdmissionController} and
+ *   {@link StreamCoalescer} dependencies via constructor.
  *
  * Methods:
  * - {@link #chat(String, String)}: Accepts a chat session ID and user message,
@@ -43,9 +48,11 @@ import rs.siriusxi.hbca.service.ai.CustomerSupportAssistant;
 @RequiredArgsConstructor
 public class AssistantUIService {
     private final CustomerSupportAssistant agent;
+    private final ChatAdmissionController admission;
+    private final StreamCoalescer streamCoalescer;
 
     public Flux<String> chat(String chatId, String userMessage) {
-        log.info("Chat initiated with chatId: {} and userMessage: {}", chatId, userMessage);
-        return agent.chat(chatId, userMessage);
+        log.info("Chat initiated with chatId: {} ({} chars)", chatId, userMessage.length());
+        return admission.admit(chatId, () -> streamCoalescer.coalesce(agent.chat(chatId, userMessage)));
     }
 }
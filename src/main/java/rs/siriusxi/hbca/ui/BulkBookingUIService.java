@@ -0,0 +1,59 @@
+package rs.siriusxi.hbca.ui;
+
+import com.vaadin.hilla.BrowserCallable;
+import jakarta.annotation.security.RolesAllowed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import rs.siriusxi.hbca.domain.RoomType;
+import rs.siriusxi.hbca.service.BulkBookingService;
+import rs.siriusxi.hbca.service.BulkBookingService.BookingCriteria;
+import rs.siriusxi.hbca.service.BulkBookingService.BulkBookingResult;
+
+import java.util.List;
+
+/**
+ * Admin endpoint for changing many bookings at once, e.g. when a hotel closes,
+ * delegating to the {@link BulkBookingService}.
+ *
+ * Responsibilities:
+ * - Cancels or re-rooms bookings given by number, or all confirmed bookings at a hotel
+ *   within a date range.
+ * - Returns the outcome per booking number, so partially failed runs can be retried
+ *   for the failed bookings only.
+ *
+ * Annotations:
+ * - {@code @BrowserCallable}: Marks the class as callable from a browser client.
+ * - {@code @RolesAllowed}: Only authenticated users with the {@code ADMIN} role may call it;
+ *   the admin account is configured under {@code spring.security.user}.
+ * - {@code @RequiredArgsConstructor}: Generates a constructor to inject dependencies.
+ *
+ * Endpoint methods cannot be overloaded, hence the {@code Matching} variants for criteria.
+ */
+@Log4j2
+@BrowserCallable
+@RolesAllowed("ADMIN")
+@RequiredArgsConstructor
+public class BulkBookingUIService {
+
+    private final BulkBookingService bulkBookingService;
+
+    public BulkBookingResult cancelBookings(List<String> bookingNumbers) {
+        log.info("Bulk cancellation of {} bookings requested", bookingNumbers.size());
+        return bulkBookingService.cancelBookings(bookingNumbers);
+    }
+
+    public BulkBookingResult cancelBookingsMatching(BookingCriteria criteria) {
+        log.info("Bulk cancellation requested for {}", criteria);
+        return bulkBookingService.cancelBookings(criteria);
+    }
+
+    public BulkBookingResult changeRoomTypes(List<String> bookingNumbers, RoomType roomType) {
+        log.info("Bulk room type change of {} bookings to {} requested", bookingNumbers.size(), roomType);
+        return bulkBookingService.changeRoomTypes(bookingNumbers, roomType);
+    }
+
+    public BulkBookingResult changeRoomTypesMatching(BookingCriteria criteria, RoomType roomType) {
+        log.info("Bulk room type change to {} requested for {}", roomType, criteria);
+        return bulkBookingService.changeRoomTypes(criteria, roomType);
+    }
+}
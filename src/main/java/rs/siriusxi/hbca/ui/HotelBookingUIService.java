@@ -3,11 +3,12 @@ package rs.siriusxi.hbca.ui;
 import com.vaadin.flow.server.auth.AnonymousAllowed;
 import com.vaadin.hilla.BrowserCallable;
 import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import reactor.core.publisher.Flux;
+import rs.siriusxi.hbca.ui.dto.BookingPage;
 import rs.siriusxi.hbca.ui.dto.HotelBookingDetail;
 import rs.siriusxi.hbca.service.HotelBookingService;
 
-import java.util.List;
-
 /**
  * Service class that provides functionalities for managing hotel bookings
  * through the UI layer. It acts as a bridge between the UI (frontend)
@@ -19,7 +20,9 @@ import java.util.List;
  * annotation.
  *
  * Responsibilities:
- * - Fetches a list of hotel bookings using the {@link HotelBookingService}.
+ * - Fetches keyset pages of hotel bookings using the {@link HotelBookingService}; the
+ *   grid reads them lazily as it scrolls.
+ * - Streams all hotel bookings page by page, for clients that consume them incrementally.
  * - Provides a read-only view of booking details to the UI layer.
  *
  * Annotations:
@@ -34,7 +37,11 @@ public class HotelBookingUIService {
 
     private final HotelBookingService hotelBookingService;
 
-    public List<HotelBookingDetail> getBookings() {
-        return hotelBookingService.getBookings();
+    public BookingPage getBookings(@Nullable String afterBookingNumber, int pageSize) {
+        return hotelBookingService.getBookings(afterBookingNumber, pageSize);
+    }
+
+    public Flux<HotelBookingDetail> streamBookings() {
+        return hotelBookingService.streamBookings(HotelBookingService.DEFAULT_PAGE_SIZE);
     }
 }
@@ -0,0 +1,15 @@
+package rs.siriusxi.hbca.ui.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * One keyset page of booking details.
+ *
+ * @param items      the bookings on this page, ordered by booking number
+ * @param nextCursor the booking number to pass to get the next page,
+ *                   or {@code null} when this is the last page
+ */
+public record BookingPage(List<HotelBookingDetail> items, @Nullable String nextCursor) {
+}
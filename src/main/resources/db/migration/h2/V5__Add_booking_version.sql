@@ -0,0 +1,3 @@
+-- Optimistic locking: every booking change increments the version it was based on.
+ALTER TABLE bookings
+    ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
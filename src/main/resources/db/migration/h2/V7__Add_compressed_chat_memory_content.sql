@@ -0,0 +1,6 @@
+-- Deflated message bodies; content is empty when content_compressed is set.
+ALTER TABLE spring_ai_chat_memory
+    ADD COLUMN content_compressed BLOB;
+
+ALTER TABLE chat_memory_archive
+    ADD COLUMN content_compressed BLOB;
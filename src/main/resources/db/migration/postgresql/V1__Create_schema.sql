@@ -0,0 +1,39 @@
+CREATE TABLE customers
+(
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    first_name VARCHAR(255) NOT NULL,
+    last_name  VARCHAR(255) NOT NULL,
+    CONSTRAINT CUSTOMER_ID_PK PRIMARY KEY (id)
+);
+
+CREATE TABLE bookings
+(
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    hotel_name       VARCHAR(255) NOT NULL,
+    booking_number   VARCHAR(255) NOT NULL,
+    check_in_date    DATE         NOT NULL,
+    check_out_date   DATE         NOT NULL,
+    customer_id      BIGINT       NOT NULL,
+    room_type        VARCHAR(16)  NOT NULL,
+    number_of_guests INT          NOT NULL,
+    booking_status   VARCHAR(16)  NOT NULL,
+    CONSTRAINT BOOKING_ID_PK PRIMARY KEY (id),
+    CONSTRAINT BOOKING_NUMBER_UQ UNIQUE (booking_number),
+    CONSTRAINT BOOKING_CUSTOMER_ID_FK FOREIGN KEY (customer_id) REFERENCES customers (id),
+    CONSTRAINT BOOKING_ROOM_TYPE_CK CHECK (room_type IN ('SINGLE', 'DOUBLE', 'TRIPLE', 'SUITE')),
+    CONSTRAINT BOOKING_STATUS_CK CHECK (booking_status IN ('CONFIRMED', 'COMPLETED', 'CANCELLED'))
+);
+
+-- AI Chat Memory schema; message text is stored as is, so TEXT rather than JSONB.
+CREATE TABLE spring_ai_chat_memory
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    conversation_id VARCHAR(36) NOT NULL,
+    content         TEXT        NOT NULL,
+    type            VARCHAR(20) NOT NULL,
+    "timestamp"     TIMESTAMP   NOT NULL,
+    CONSTRAINT CHAT_MEMORY_PK PRIMARY KEY (id)
+);
+
+CREATE INDEX CONVERSATION_ID_TIMESTAMP_IDX
+    ON spring_ai_chat_memory (conversation_id, "timestamp");
@@ -0,0 +1,20 @@
+INSERT INTO customers (first_name, last_name) VALUES ('Jack', 'Bauer');
+INSERT INTO customers (first_name, last_name) VALUES ('Chloe', 'O''Brian');
+INSERT INTO customers (first_name, last_name) VALUES ('Kim', 'Bauer');
+INSERT INTO customers (first_name, last_name) VALUES ('David', 'Palmer');
+INSERT INTO customers (first_name, last_name) VALUES ('Michelle', 'Dessler');
+
+INSERT INTO bookings (hotel_name, booking_number, check_in_date, check_out_date, customer_id, room_type, number_of_guests, booking_status)
+VALUES ('Marriot', '101', CURRENT_DATE, CURRENT_DATE + 2, 1, 'SINGLE', 2, 'CONFIRMED');
+
+INSERT INTO bookings (hotel_name, booking_number, check_in_date, check_out_date, customer_id, room_type, number_of_guests, booking_status)
+VALUES ('Hilton', '102', CURRENT_DATE + 2, CURRENT_DATE + 4, 2, 'DOUBLE', 2, 'CONFIRMED');
+
+INSERT INTO bookings (hotel_name, booking_number, check_in_date, check_out_date, customer_id, room_type, number_of_guests, booking_status)
+VALUES ('Sheraton', '103', CURRENT_DATE + 4, CURRENT_DATE + 6, 3, 'TRIPLE', 2, 'CONFIRMED');
+
+INSERT INTO bookings (hotel_name, booking_number, check_in_date, check_out_date, customer_id, room_type, number_of_guests, booking_status)
+VALUES ('Westin', '104', CURRENT_DATE + 6, CURRENT_DATE + 8, 4, 'SUITE', 2, 'CONFIRMED');
+
+INSERT INTO bookings (hotel_name, booking_number, check_in_date, check_out_date, customer_id, room_type, number_of_guests, booking_status)
+VALUES ('Four Seasons', '105', CURRENT_DATE + 8, CURRENT_DATE + 10, 5, 'SINGLE', 2, 'CONFIRMED');
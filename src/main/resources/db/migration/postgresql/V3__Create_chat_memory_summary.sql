@@ -0,0 +1,8 @@
+-- Rolling summaries of chat memory turns folded out of the verbatim window
+CREATE TABLE chat_memory_summary
+(
+    conversation_id VARCHAR(36) NOT NULL,
+    summary         TEXT        NOT NULL,
+    updated_at      TIMESTAMP   NOT NULL,
+    CONSTRAINT CHAT_MEMORY_SUMMARY_PK PRIMARY KEY (conversation_id)
+);
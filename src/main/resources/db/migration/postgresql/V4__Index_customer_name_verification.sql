@@ -0,0 +1,14 @@
+-- Case-insensitive customer name verification without function-wrapped comparisons:
+-- upper-cased copies of the names maintained by the database, indexed together with the id.
+ALTER TABLE customers
+    ADD COLUMN first_name_key VARCHAR(255) GENERATED ALWAYS AS (UPPER(first_name)) STORED;
+
+ALTER TABLE customers
+    ADD COLUMN last_name_key VARCHAR(255) GENERATED ALWAYS AS (UPPER(last_name)) STORED;
+
+CREATE INDEX CUSTOMER_NAME_KEY_IDX
+    ON customers (id, last_name_key, first_name_key);
+
+-- Booking number lookup that also yields the customer id from the index.
+CREATE INDEX BOOKING_NUMBER_CUSTOMER_IDX
+    ON bookings (booking_number, customer_id);
@@ -0,0 +1,14 @@
+-- Messages of expired conversations, kept when hbca.ai.memory.retention.archive is enabled
+CREATE TABLE chat_memory_archive
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    conversation_id VARCHAR(36) NOT NULL,
+    content         TEXT        NOT NULL,
+    type            VARCHAR(20) NOT NULL,
+    "timestamp"     TIMESTAMP   NOT NULL,
+    archived_at     TIMESTAMP   NOT NULL,
+    CONSTRAINT CHAT_MEMORY_ARCHIVE_PK PRIMARY KEY (id)
+);
+
+CREATE INDEX CHAT_MEMORY_ARCHIVE_CONVERSATION_IDX
+    ON chat_memory_archive (conversation_id, "timestamp");
@@ -0,0 +1,89 @@
+package rs.siriusxi.hbca.perf;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import rs.siriusxi.hbca.HCSAApplication;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application with the {@code perf} profile and seeds synthetic bookings
+ */
+public final class PerfContext {
+
+    private static final String[] HOTELS = {"Marriot", "Hilton", "Sheraton", "Westin", "Hyatt"};
+    private static final String[] ROOM_TYPES = {"SINGLE", "DOUBLE", "TRIPLE", "SUITE"};
+    private static final int BATCH_SIZE = 5_000;
+
+    private PerfContext() {
+    }
+
+    /**
+     * Starts a context without a web server; extra properties are {@code key=value} pairs
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        return start(List.of(), properties);
+    }
+
+    /**
+     * Same as {@link #start(String...)}, with profiles activated on top of {@code perf}
+     */
+    public static ConfigurableApplicationContext start(List<String> extraProfiles, String... properties) {
+        List<String> profiles = new ArrayList<>(List.of("perf"));
+        profiles.addAll(extraProfiles);
+        return new SpringApplicationBuilder(HCSAApplication.class)
+                .profiles(profiles.toArray(String[]::new))
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * Synthetic booking number of the n-th seeded booking; sorts in insertion order
+     */
+    public static String bookingNumber(int n) {
+        return "B%08d".formatted(n);
+    }
+
+    /**
+     * Inserts {@code bookings} bookings for {@code bookings / 2} customers, in batches
+     */
+    public static void seedBookings(ConfigurableApplicationContext context, int bookings) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        long firstCustomer = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM customers", Long.class) + 1;
+        int customers = Math.max(1, bookings / 2);
+
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < customers; i++) {
+            rows.add(new Object[]{"First" + i, "Last" + i});
+            if (rows.size() == BATCH_SIZE) {
+                jdbc.batchUpdate("INSERT INTO customers (first_name, last_name) VALUES (?, ?)", rows);
+                rows.clear();
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO customers (first_name, last_name) VALUES (?, ?)", rows);
+        rows.clear();
+
+        LocalDate today = LocalDate.now();
+        String insert = """
+                INSERT INTO bookings (hotel_name, booking_number, check_in_date, check_out_date, customer_id,
+                                      room_type, number_of_guests, booking_status)
+                VALUES (?, ?, ?, ?, ?, ?, ?, 'CONFIRMED')""";
+        for (int i = 0; i < bookings; i++) {
+            LocalDate checkIn = today.plusDays(i % 365);
+            rows.add(new Object[]{HOTELS[i % HOTELS.length], bookingNumber(i), Date.valueOf(checkIn),
+                    Date.valueOf(checkIn.plusDays(1 + i % 7)), firstCustomer + i % customers,
+                    ROOM_TYPES[i % ROOM_TYPES.length], 1 + i % 4});
+            if (rows.size() == BATCH_SIZE) {
+                jdbc.batchUpdate(insert, rows);
+                rows.clear();
+            }
+        }
+        jdbc.batchUpdate(insert, rows);
+    }
+}
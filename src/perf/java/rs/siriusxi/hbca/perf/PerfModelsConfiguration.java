@@ -0,0 +1,31 @@
+package rs.siriusxi.hbca.perf;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Replaces the OpenAI models with offline stubs when the {@code perf} profile is active
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("perf")
+@EnableConfigurationProperties(StubLlmProperties.class)
+public class PerfModelsConfiguration {
+
+    @Bean
+    @Primary
+    ChatModel stubChatModel(StubLlmProperties properties, ToolCallingManager toolCallingManager) {
+        return new StubChatModel(properties, toolCallingManager);
+    }
+
+    @Bean
+    @Primary
+    EmbeddingModel stubEmbeddingModel() {
+        return new StubEmbeddingModel();
+    }
+}
@@ -0,0 +1,110 @@
+package rs.siriusxi.hbca.perf;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic, offline {@link ChatModel} for load tests.
+ * <p>
+ * Streams a fixed number of filler tokens after a configurable time-to-first-token and
+ * at a configurable rate. A configurable share of prompts first executes the real
+ * {@code findBooking} tool through the {@link ToolCallingManager}, so tool execution and
+ * its database reads are part of the measured path.
+ */
+public class StubChatModel implements ChatModel {
+
+    private static final String[] WORDS = ("Thank you for contacting Great Hotel Booking, "
+            + "your reservation is confirmed and our terms allow free changes up to one day before arrival")
+            .split(" ");
+    private static final String FIND_BOOKING_TOOL = "findBooking";
+    private static final Pattern BOOKING_NUMBER = Pattern.compile("\\b(\\d{3,})\\b");
+
+    private final StubLlmProperties properties;
+    private final ToolCallingManager toolCallingManager;
+
+    public StubChatModel(StubLlmProperties properties, ToolCallingManager toolCallingManager) {
+        this.properties = properties;
+        this.toolCallingManager = toolCallingManager;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (callsTool(prompt)) {
+            callTool(prompt);
+        }
+        Duration duration = properties.timeToFirstToken()
+                .plus(tokenInterval().multipliedBy(Math.max(0, properties.responseTokens() - 1)));
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating", e);
+        }
+        var answer = new StringBuilder();
+        for (int i = 0; i < properties.responseTokens(); i++) {
+            answer.append(token(i));
+        }
+        return response(answer.toString().strip());
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        Mono<Void> tool = callsTool(prompt)
+                ? Mono.fromRunnable(() -> callTool(prompt)).subscribeOn(Schedulers.boundedElastic()).then()
+                : Mono.empty();
+        Flux<ChatResponse> tokens = Flux.interval(properties.timeToFirstToken(), tokenInterval())
+                .take(properties.responseTokens())
+                .map(i -> response(token(i)));
+        return tool.thenMany(tokens);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        // Tool-calling options let ChatClient pass tool names and context through to this model.
+        return ToolCallingChatOptions.builder().build();
+    }
+
+    private boolean callsTool(Prompt prompt) {
+        if (!(prompt.getOptions() instanceof ToolCallingChatOptions options) || options.getToolNames().isEmpty()) {
+            return false;
+        }
+        String text = prompt.getUserMessage().getText();
+        return Math.floorMod(text.hashCode(), 1_000) < properties.toolCallRate() * 1_000;
+    }
+
+    private void callTool(Prompt prompt) {
+        Matcher matcher = BOOKING_NUMBER.matcher(prompt.getUserMessage().getText());
+        String bookingNumber = matcher.find() ? matcher.group(1) : "101";
+        var toolCall = new AssistantMessage.ToolCall("call-" + UUID.randomUUID(), "function", FIND_BOOKING_TOOL,
+                "{\"bookingNumber\":\"%s\"}".formatted(bookingNumber));
+        var message = AssistantMessage.builder().content("").toolCalls(List.of(toolCall)).build();
+        toolCallingManager.executeToolCalls(prompt, new ChatResponse(List.of(new Generation(message))));
+    }
+
+    private Duration tokenInterval() {
+        return Duration.ofNanos(1_000_000_000L / Math.max(1, properties.tokensPerSecond()));
+    }
+
+    private static String token(long index) {
+        return WORDS[(int) (index % WORDS.length)] + " ";
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(AssistantMessage.builder().content(text).build())));
+    }
+}
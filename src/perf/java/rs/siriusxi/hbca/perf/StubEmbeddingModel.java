@@ -0,0 +1,64 @@
+package rs.siriusxi.hbca.perf;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Deterministic, offline {@link EmbeddingModel} for benchmarks and load tests.
+ * <p>
+ * Words are feature-hashed into a fixed number of dimensions, so texts sharing words
+ * get similar vectors and retrieval behaves plausibly without calling a real model.
+ */
+public class StubEmbeddingModel implements EmbeddingModel {
+
+    public static final int DEFAULT_DIMENSIONS = 384;
+
+    private final int dimensions;
+
+    public StubEmbeddingModel() {
+        this(DEFAULT_DIMENSIONS);
+    }
+
+    public StubEmbeddingModel(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+        for (String text : request.getInstructions()) {
+            embeddings.add(new Embedding(embed(text), embeddings.size()));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        for (String word : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+            if (!word.isEmpty()) {
+                int hash = word.hashCode();
+                vector[Math.floorMod(hash, dimensions)] += (hash & 1) == 0 ? 1 : -1;
+            }
+        }
+        vector[0] += 0.01f; // never the zero vector
+        return vector;
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+}
@@ -0,0 +1,23 @@
+package rs.siriusxi.hbca.perf;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Behaviour of the {@link StubChatModel}, bound from {@code hbca.perf.stub-llm.*}.
+ *
+ * @param timeToFirstToken delay before the first streamed token
+ * @param tokensPerSecond  rate of the following tokens
+ * @param responseTokens   tokens per answer
+ * @param toolCallRate     share of prompts, in {@code [0, 1]}, that call the {@code findBooking}
+ *                         tool before answering; chosen by hashing the user message, so the
+ *                         same message always behaves the same way
+ */
+@ConfigurationProperties("hbca.perf.stub-llm")
+public record StubLlmProperties(@DefaultValue("300ms") Duration timeToFirstToken,
+                                @DefaultValue("25") int tokensPerSecond,
+                                @DefaultValue("80") int responseTokens,
+                                @DefaultValue("0.2") double toolCallRate) {
+}
@@ -0,0 +1,76 @@
+package rs.siriusxi.hbca.perf.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import rs.siriusxi.hbca.perf.PerfContext;
+import rs.siriusxi.hbca.service.HotelBookingService;
+import rs.siriusxi.hbca.ui.dto.BookingPage;
+import rs.siriusxi.hbca.ui.dto.HotelBookingDetail;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HotelBookingService} reads against an in-memory H2 database seeded with
+ * {@code bookings} synthetic rows, through the full Spring/JPA stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int bookings;
+
+    private ConfigurableApplicationContext context;
+    private HotelBookingService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = PerfContext.start("spring.datasource.url=jdbc:h2:mem:bookings-" + bookings + ";DB_CLOSE_DELAY=-1");
+        PerfContext.seedBookings(context, bookings);
+        service = context.getBean(HotelBookingService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public HotelBookingDetail findBooking() {
+        return service.findBooking(PerfContext.bookingNumber(ThreadLocalRandom.current().nextInt(bookings)));
+    }
+
+    @Benchmark
+    public BookingPage getBookingsFirstPage() {
+        return service.getBookings(null, HotelBookingService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public BookingPage getBookingsRandomPage() {
+        return service.getBookings(PerfContext.bookingNumber(ThreadLocalRandom.current().nextInt(bookings)),
+                HotelBookingService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Long streamAllBookings() {
+        return service.streamBookings(HotelBookingService.MAX_PAGE_SIZE).count().block();
+    }
+}
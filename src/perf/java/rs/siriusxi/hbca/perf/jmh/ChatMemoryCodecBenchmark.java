@@ -0,0 +1,87 @@
+package rs.siriusxi.hbca.perf.jmh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ClassPathResource;
+import rs.siriusxi.hbca.config.ChatMemoryProperties;
+import rs.siriusxi.hbca.service.ai.memory.MessageCodec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write and read cost of a 100-message chat memory window built from
+ * {@code chat-memory-samples.txt}: stored as text, deflated, and deflated against the
+ * trained {@code chat-memory.dict}. The stored size of the window for each encoding is
+ * printed at setup, to weigh CPU against I/O and storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatMemoryCodecBenchmark {
+
+    private static final int WINDOW = 100;
+
+    @Param({"plain", "deflate", "deflate-dictionary"})
+    String encoding;
+
+    private MessageCodec codec;
+    private List<String> window;
+    private List<MessageCodec.Encoded> stored;
+
+    @Setup
+    public void setUp() throws IOException {
+        codec = new MessageCodec(switch (encoding) {
+            case "plain" -> new ChatMemoryProperties.Compression(false, null, 128, 6);
+            case "deflate" -> new ChatMemoryProperties.Compression(true, null, 128, 6);
+            case "deflate-dictionary" ->
+                    new ChatMemoryProperties.Compression(true, new ClassPathResource("chat-memory.dict"), 128, 6);
+            default -> throw new IllegalArgumentException(encoding);
+        }, new SimpleMeterRegistry());
+
+        List<String> samples = new ClassPathResource("chat-memory-samples.txt")
+                .getContentAsString(StandardCharsets.UTF_8).lines().filter(line -> !line.isBlank()).toList();
+        window = new ArrayList<>(WINDOW);
+        for (int i = 0; i < WINDOW; i++) {
+            window.add(samples.get(i % samples.size()));
+        }
+        stored = window.stream().map(codec::encode).toList();
+
+        long raw = window.stream().mapToLong(text -> text.getBytes(StandardCharsets.UTF_8).length).sum();
+        long written = stored.stream().mapToLong(body -> body.compressed() != null
+                ? body.compressed().length : body.content().getBytes(StandardCharsets.UTF_8).length).sum();
+        System.out.printf("%n%s: window of %d bytes stored in %d bytes (%.2fx)%n",
+                encoding, raw, written, (double) raw / written);
+    }
+
+    @Benchmark
+    public void encodeWindow(Blackhole blackhole) {
+        for (String text : window) {
+            blackhole.consume(codec.encode(text));
+        }
+    }
+
+    @Benchmark
+    public void decodeWindow(Blackhole blackhole) {
+        for (MessageCodec.Encoded body : stored) {
+            blackhole.consume(codec.decode(body.content(), body.compressed()));
+        }
+    }
+}
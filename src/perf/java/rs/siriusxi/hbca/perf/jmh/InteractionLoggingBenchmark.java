@@ -0,0 +1,165 @@
+package rs.siriusxi.hbca.perf.jmh;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.DefaultAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import rs.siriusxi.hbca.config.InteractionLogProperties;
+import rs.siriusxi.hbca.service.ai.observation.InteractionLoggingAdvisor;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.ai.chat.memory.ChatMemory.CONVERSATION_ID;
+
+/**
+ * Per-turn cost of interaction logging on the calling thread, for a prompt carrying 100
+ * memory messages and retrieved booking terms: the former {@code SimpleLoggerAdvisor}
+ * at debug against the sampled {@link InteractionLoggingAdvisor} behind an async appender.
+ * <p>
+ * Both write to a discarding encoder, so the numbers are serialization and formatting,
+ * not console I/O. {@code none} runs the same chain without a logging advisor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InteractionLoggingBenchmark {
+
+    @Param({"none", "simple-logger", "sampled-0.1", "sampled-1.0"})
+    String logger;
+
+    private CallAdvisor advisor;
+    private CallAdvisor model;
+    private ChatClientRequest request;
+    private LoggerContext loggerContext;
+
+    @Setup
+    public void setUp() {
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.reset();
+        var discarding = new OutputStreamAppender<ILoggingEvent>();
+        var encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d %-5level [%thread] %logger{36} %kvp - %msg%n");
+        encoder.start();
+        discarding.setContext(loggerContext);
+        discarding.setEncoder(encoder);
+        discarding.setOutputStream(OutputStream.nullOutputStream());
+        discarding.start();
+        var async = new AsyncAppender();
+        async.setContext(loggerContext);
+        async.setQueueSize(2048);
+        async.setDiscardingThreshold(0);
+        async.setNeverBlock(true);
+        async.addAppender(discarding);
+        async.start();
+
+        Logger root = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(discarding);
+        loggerContext.getLogger("org.springframework.ai").setLevel(Level.DEBUG);
+        Logger interactions = loggerContext.getLogger("hbca.interaction");
+        interactions.setAdditive(false);
+        interactions.addAppender(async);
+
+        advisor = switch (logger) {
+            case "none" -> null;
+            case "simple-logger" -> new SimpleLoggerAdvisor(-1);
+            case "sampled-0.1" -> new InteractionLoggingAdvisor(properties(0.1));
+            case "sampled-1.0" -> new InteractionLoggingAdvisor(properties(1.0));
+            default -> throw new IllegalArgumentException(logger);
+        };
+
+        String terms = "Bookings can be cancelled up to 48 hours before check-in without a fee. ".repeat(40);
+        List<Message> messages = new ArrayList<>();
+        messages.add(SystemMessage.builder().text("You are a hotel booking assistant.\n" + terms).build());
+        for (int i = 0; i < 50; i++) {
+            messages.add(UserMessage.builder().text("Can I change the room type of booking " + (100 + i) + "?").build());
+            messages.add(AssistantMessage.builder().content("Yes, booking " + (100 + i)
+                    + " can be changed to a suite for a fee of 25 EUR per night. " + "Details follow. ".repeat(10)).build());
+        }
+        messages.add(UserMessage.builder().text("Please cancel booking 101 for Jack Bauer, jack@example.com").build());
+        request = ChatClientRequest.builder()
+                .prompt(new Prompt(messages))
+                .context(Map.of(CONVERSATION_ID, "benchmark"))
+                .build();
+        var response = ChatClientResponse.builder()
+                .chatResponse(new ChatResponse(List.of(new Generation(AssistantMessage.builder()
+                        .content("Booking 101 has been cancelled. " + "You will receive a confirmation. ".repeat(30))
+                        .build()))))
+                .build();
+        model = new CallAdvisor() {
+            @Override
+            public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain chain) {
+                return response;
+            }
+
+            @Override
+            public String getName() {
+                return "model";
+            }
+
+            @Override
+            public int getOrder() {
+                return Integer.MAX_VALUE;
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        loggerContext.stop();
+    }
+
+    @Benchmark
+    public ChatClientResponse turn() {
+        List<CallAdvisor> advisors = advisor == null ? List.of(model) : List.of(advisor, model);
+        return DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP)
+                .pushAll(advisors)
+                .build()
+                .nextCall(request);
+    }
+
+    private static InteractionLogProperties properties(double sampleRate) {
+        return new InteractionLogProperties(true, sampleRate, 2000, List.of(
+                "[\\w.+-]+@[\\w-]+(\\.[\\w-]+)+",
+                "\\b(?:\\d[ -]?){13,19}\\b",
+                "\\+\\d[\\d ()-]{7,}\\d|\\b\\d{3}[ .-]?\\d{3}[ .-]?\\d{4}\\b"));
+    }
+}
@@ -0,0 +1,49 @@
+package rs.siriusxi.hbca.perf.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunking cost of the ingestion path: {@code booking-terms.txt} repeated {@code copies} times
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenTextSplitterBenchmark {
+
+    @Param({"1", "10", "100"})
+    int copies;
+
+    private Document document;
+
+    @Setup
+    public void setUp() throws IOException {
+        String terms = new ClassPathResource("booking-terms.txt").getContentAsString(StandardCharsets.UTF_8);
+        document = new Document((terms + "\n").repeat(copies));
+    }
+
+    @Benchmark
+    public List<Document> split() {
+        return new TokenTextSplitter().split(document);
+    }
+}
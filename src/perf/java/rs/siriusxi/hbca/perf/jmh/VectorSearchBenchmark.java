@@ -0,0 +1,127 @@
+package rs.siriusxi.hbca.perf.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import rs.siriusxi.hbca.perf.StubEmbeddingModel;
+import rs.siriusxi.hbca.service.ai.rag.HnswVectorStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link VectorStore#similaritySearch} over a synthetic, clustered corpus, comparing the
+ * HNSW store with Spring AI's brute-force {@link SimpleVectorStore}.
+ * <p>
+ * Document and query texts map to precomputed vectors, so both stores index the same
+ * embeddings and the query embedding costs only a map lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VectorSearchBenchmark {
+
+    private static final int DIMENSIONS = 384;
+    private static final int CLUSTERS = 64;
+    private static final int QUERIES = 256;
+
+    @Param({"1000", "10000", "50000"})
+    int corpusSize;
+
+    @Param({"hnsw", "simple"})
+    String store;
+
+    private VectorStore vectorStore;
+    private SearchRequest[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var random = new SplittableRandom(7);
+        float[][] centers = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) {
+            centers[c] = gaussian(random, null, 1);
+        }
+        Map<String, float[]> vectors = new HashMap<>();
+        List<Document> documents = new ArrayList<>(corpusSize);
+        List<float[]> embeddings = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) {
+            float[] vector = gaussian(random, centers[i % CLUSTERS], 0.3f);
+            Document document = new Document("doc-" + i, "document " + i, Map.of());
+            vectors.put(document.getText(), vector);
+            documents.add(document);
+            embeddings.add(vector);
+        }
+        queries = new SearchRequest[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            String text = "query " + q;
+            vectors.put(text, gaussian(random, centers[q % CLUSTERS], 0.3f));
+            queries[q] = SearchRequest.builder().query(text).topK(4).build();
+        }
+
+        EmbeddingModel model = new PrecomputedEmbeddingModel(vectors);
+        if ("hnsw".equals(store)) {
+            HnswVectorStore hnsw = HnswVectorStore.builder(model).build();
+            hnsw.add(documents, embeddings);
+            vectorStore = hnsw;
+        } else {
+            vectorStore = SimpleVectorStore.builder(model).build();
+            vectorStore.add(documents);
+        }
+    }
+
+    @Benchmark
+    public List<Document> similaritySearch() {
+        return vectorStore.similaritySearch(queries[next++ & (QUERIES - 1)]);
+    }
+
+    private static float[] gaussian(SplittableRandom random, float[] center, float scale) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            double u = 1 - random.nextDouble();
+            double gaussian = Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+            vector[i] = (center == null ? 0 : center[i]) + (float) gaussian * scale;
+        }
+        return vector;
+    }
+
+    /**
+     * Looks texts up in a fixed table; unknown texts fall back to the hashing stub
+     */
+    private static final class PrecomputedEmbeddingModel extends StubEmbeddingModel {
+
+        private final Map<String, float[]> vectors;
+
+        PrecomputedEmbeddingModel(Map<String, float[]> vectors) {
+            super(DIMENSIONS);
+            this.vectors = vectors;
+        }
+
+        @Override
+        public float[] embed(String text) {
+            float[] vector = vectors.get(text);
+            return vector != null ? vector.clone() : super.embed(text);
+        }
+    }
+}
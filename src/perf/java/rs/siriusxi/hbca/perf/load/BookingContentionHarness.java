@@ -0,0 +1,118 @@
+package rs.siriusxi.hbca.perf.load;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import rs.siriusxi.hbca.domain.RoomType;
+import rs.siriusxi.hbca.perf.PerfContext;
+import rs.siriusxi.hbca.service.HotelBookingService;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Drives many parallel {@link HotelBookingService#changeBookingRoomType} calls against a
+ * small set of hot bookings and checks the optimistic locking.
+ * <p>
+ * Every successful change increments the booking's version by exactly one, so after the
+ * run each booking's version must equal the number of changes reported as successful on
+ * it: a lost update would leave the version behind, a double apply would push it ahead.
+ * Changes that still conflicted after all retries are counted, not treated as errors.
+ * <pre>
+ * ./mvnw -Pperf test-compile exec:exec@contention -Dcontention.args="--bookings=4 --threads=128 --operations=200"
+ * </pre>
+ * Prints throughput, retried and exhausted conflicts, and exits with status 1 if any
+ * booking's version disagrees. {@code HotelBookingServiceConcurrencyTest} runs the same
+ * check at a small scale with the unit tests.
+ */
+public final class BookingContentionHarness {
+
+    private static final int SEEDED_BOOKINGS = 1_000;
+
+    static void main(String[] args) throws Exception {
+        int hotBookings = 4;
+        int threads = 64;
+        int operations = 200;
+        for (String arg : args) {
+            if (arg.startsWith("--bookings=")) {
+                hotBookings = Integer.parseInt(arg.substring(11));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("--operations=")) {
+                operations = Integer.parseInt(arg.substring(13));
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+        if (hotBookings < 1 || hotBookings > SEEDED_BOOKINGS) {
+            throw new IllegalArgumentException("--bookings must be between 1 and " + SEEDED_BOOKINGS);
+        }
+
+        boolean consistent;
+        try (var context = PerfContext.start("hbca.bookings.cache.enabled=false")) {
+            PerfContext.seedBookings(context, SEEDED_BOOKINGS);
+            var bookings = context.getBean(HotelBookingService.class);
+            var jdbc = context.getBean(JdbcTemplate.class);
+            var meterRegistry = context.getBean(MeterRegistry.class);
+            int customers = Math.max(1, SEEDED_BOOKINGS / 2);
+            RoomType[] roomTypes = RoomType.values();
+
+            var succeeded = new AtomicLongArray(hotBookings);
+            var exhausted = new AtomicLong();
+            var failed = new AtomicLong();
+            int hot = hotBookings;
+            int perThread = operations;
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int t = 0; t < threads; t++) {
+                    executor.submit(() -> {
+                        var random = ThreadLocalRandom.current();
+                        for (int i = 0; i < perThread; i++) {
+                            int booking = random.nextInt(hot);
+                            int customer = booking % customers;
+                            try {
+                                bookings.changeBookingRoomType(PerfContext.bookingNumber(booking),
+                                        "First" + customer, "Last" + customer,
+                                        roomTypes[random.nextInt(roomTypes.length)].name());
+                                succeeded.incrementAndGet(booking);
+                            } catch (OptimisticLockingFailureException _) {
+                                exhausted.incrementAndGet();
+                            } catch (RuntimeException e) {
+                                failed.incrementAndGet();
+                                System.err.printf("Change of %s failed: %s%n", PerfContext.bookingNumber(booking), e);
+                            }
+                        }
+                    });
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            consistent = failed.get() == 0;
+            long total = 0;
+            for (int booking = 0; booking < hotBookings; booking++) {
+                long version = jdbc.queryForObject("SELECT version FROM bookings WHERE booking_number = ?",
+                        Long.class, PerfContext.bookingNumber(booking));
+                total += succeeded.get(booking);
+                if (version != succeeded.get(booking)) {
+                    consistent = false;
+                    System.err.printf("Booking %s: version %d but %d successful changes%n",
+                            PerfContext.bookingNumber(booking), version, succeeded.get(booking));
+                }
+            }
+            Counter retried = meterRegistry.find("hbca.bookings.conflicts").tag("outcome", "retried").counter();
+            System.out.printf("%d threads x %d changes on %d bookings in %.2f s%n", threads, operations,
+                    hotBookings, seconds);
+            System.out.printf("succeeded %d (%.0f/s), retried conflicts %.0f, exhausted %d, failed %d%n",
+                    total, total / seconds, retried == null ? 0 : retried.count(), exhausted.get(), failed.get());
+            System.out.println(consistent ? "Versions consistent with successful changes"
+                    : "Inconsistent versions, see above");
+        }
+        if (!consistent) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package rs.siriusxi.hbca.perf.load;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+import rs.siriusxi.hbca.perf.PerfContext;
+import rs.siriusxi.hbca.ui.AssistantUIService;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Drives concurrent {@link AssistantUIService#chat(String, String)} streams against the
+ * application running with the {@code perf} and {@code loadtest} profiles, i.e. with the
+ * stub chat and embedding models and the real advisors, memory, tools and database.
+ * <p>
+ * For every concurrency level it opens that many conversations at once, each sending
+ * {@code turns} messages in sequence, and reports:
+ * - p50/p99 time to first token per turn,
+ * - streamed tokens per second across all streams, and the push frames per second they
+ *   were coalesced into,
+ * - heap per open stream, measured after a GC once every stream has started,
+ * - JDBC pool contention: peak threads waiting for a connection and mean acquire time.
+ * <p>
+ * The browser transport (Hilla push) is not part of the measurement.
+ * <pre>
+ * ./mvnw -Pperf test-compile exec:exec@loadtest -Dloadtest.args="--levels=100,1000,5000 --turns=3"
+ * </pre>
+ * Results are printed and appended to {@code target/loadtest/results.csv}.
+ */
+public final class LoadTestHarness {
+
+    private static final String[] MESSAGES = {
+            "What is the cancellation policy?",
+            "Can I change my room type after booking?",
+            "Are pets allowed in the hotel?",
+            "Please show me the details of booking 101",
+            "What are the charges for changing booking 102?",
+            "I want to cancel booking 103",
+            "Is breakfast included in my stay?",
+            "How late can I check in?",
+    };
+    private static final Path RESULTS = Path.of("target", "loadtest", "results.csv");
+
+    private final AssistantUIService assistant;
+    private final HikariPoolMXBean pool;
+    private final Timer connectionAcquire;
+    private final Counter fragments;
+    private final int turns;
+    private final Duration levelTimeout;
+
+    private LoadTestHarness(ConfigurableApplicationContext context, int turns, Duration levelTimeout)
+            throws SQLException {
+        this.assistant = context.getBean(AssistantUIService.class);
+        this.pool = context.getBean(DataSource.class).unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+        this.connectionAcquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+        this.fragments = meterRegistry.counter("hbca.chat.stream.fragments");
+        this.turns = turns;
+        this.levelTimeout = levelTimeout;
+    }
+
+    record LevelResult(int concurrency, int turns, int completed, int failed, double ttftP50Millis,
+                       double ttftP99Millis, double tokensPerSecond, double framesPerSecond,
+                       long heapBytesPerStream,
+                       int maxThreadsAwaitingConnection, double meanConnectionAcquireMillis) {
+
+        static String csvHeader() {
+            return "concurrency,turns,completed,failed,ttft_p50_ms,ttft_p99_ms,tokens_per_s,frames_per_s,"
+                    + "heap_bytes_per_stream,max_awaiting_connection,mean_acquire_ms";
+        }
+
+        String csv() {
+            return "%d,%d,%d,%d,%.1f,%.1f,%.0f,%.0f,%d,%d,%.3f".formatted(concurrency, turns, completed, failed,
+                    ttftP50Millis, ttftP99Millis, tokensPerSecond, framesPerSecond, heapBytesPerStream,
+                    maxThreadsAwaitingConnection, meanConnectionAcquireMillis);
+        }
+    }
+
+    static void main(String[] args) throws Exception {
+        int[] levels = {100, 500, 1000, 2000};
+        int turns = 2;
+        Duration timeout = Duration.ofMinutes(5);
+        for (String arg : args) {
+            if (arg.startsWith("--levels=")) {
+                levels = Arrays.stream(arg.substring(9).split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if (arg.startsWith("--turns=")) {
+                turns = Integer.parseInt(arg.substring(8));
+            } else if (arg.startsWith("--timeout=")) {
+                timeout = Duration.parse(arg.substring(10));
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        try (var context = PerfContext.start(List.of("loadtest"))) {
+            var harness = new LoadTestHarness(context, turns, timeout);
+            harness.run(Math.min(50, levels[0]));
+            List<LevelResult> results = new ArrayList<>();
+            System.out.println(LevelResult.csvHeader());
+            for (int level : levels) {
+                LevelResult result = harness.run(level);
+                results.add(result);
+                System.out.println(result.csv());
+            }
+            write(results);
+        }
+    }
+
+    private LevelResult run(int concurrency) throws InterruptedException {
+        int streams = concurrency * turns;
+        long[] ttftNanos = new long[streams];
+        Arrays.fill(ttftNanos, -1);
+        var frames = new AtomicLong();
+        double fragmentsBefore = fragments.count();
+        var failed = new AtomicInteger();
+        var started = new CountDownLatch(concurrency);
+        var finished = new CountDownLatch(concurrency);
+        var firstTurnStarted = new AtomicLongArray(concurrency);
+
+        long heapBefore = usedHeapAfterGc();
+        long acquireCountBefore = connectionAcquire == null ? 0 : connectionAcquire.count();
+        double acquireNanosBefore = connectionAcquire == null ? 0 : connectionAcquire.totalTime(TimeUnit.NANOSECONDS);
+        var maxAwaiting = new AtomicInteger();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> maxAwaiting.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max),
+                0, 10, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        for (int c = 0; c < concurrency; c++) {
+            int conversation = c;
+            String chatId = UUID.randomUUID().toString();
+            Flux.range(0, turns)
+                    .concatMap(turn -> Flux.defer(() -> {
+                        int stream = conversation * turns + turn;
+                        long turnStart = System.nanoTime();
+                        String message = MESSAGES[(conversation + turn) % MESSAGES.length];
+                        return assistant.chat(chatId, message)
+                                .doOnNext(frame -> {
+                                    if (ttftNanos[stream] < 0) {
+                                        ttftNanos[stream] = System.nanoTime() - turnStart;
+                                        if (turn == 0 && firstTurnStarted.compareAndSet(conversation, 0, 1)) {
+                                            started.countDown();
+                                        }
+                                    }
+                                    frames.incrementAndGet();
+                                });
+                    }))
+                    .doFinally(_ -> {
+                        if (firstTurnStarted.compareAndSet(conversation, 0, 1)) {
+                            started.countDown();
+                        }
+                        finished.countDown();
+                    })
+                    .subscribe(_ -> {
+                    }, _ -> failed.incrementAndGet());
+        }
+
+        // Every conversation is streaming now; what is left on the heap after a GC is held by open streams.
+        started.await(levelTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        long heapWithOpenStreams = usedHeapAfterGc();
+        boolean completed = finished.await(levelTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        long elapsed = System.nanoTime() - start;
+        sampler.shutdownNow();
+        if (!completed) {
+            System.err.printf("Level %d did not finish within %s%n", concurrency, levelTimeout);
+        }
+
+        long acquires = connectionAcquire == null ? 0 : connectionAcquire.count() - acquireCountBefore;
+        double acquireNanos = connectionAcquire == null ? 0
+                : connectionAcquire.totalTime(TimeUnit.NANOSECONDS) - acquireNanosBefore;
+        long[] observed = Arrays.stream(ttftNanos).filter(nanos -> nanos >= 0).sorted().toArray();
+        return new LevelResult(concurrency, turns, observed.length, failed.get(),
+                percentile(observed, 0.50) / 1e6, percentile(observed, 0.99) / 1e6,
+                (fragments.count() - fragmentsBefore) / (elapsed / 1e9), frames.get() / (elapsed / 1e9),
+                Math.max(0, heapWithOpenStreams - heapBefore) / concurrency,
+                maxAwaiting.get(), acquires == 0 ? 0 : acquireNanos / acquires / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void write(List<LevelResult> results) throws IOException {
+        Files.createDirectories(RESULTS.getParent());
+        List<String> lines = new ArrayList<>();
+        if (Files.notExists(RESULTS)) {
+            lines.add(LevelResult.csvHeader());
+        }
+        results.forEach(result -> lines.add(result.csv()));
+        Files.write(RESULTS, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,114 @@
+package rs.siriusxi.hbca.perf.tools;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trains the preset deflate dictionary of {@code MessageCodec} from sample chat memory
+ * messages, one message per line.
+ * <p>
+ * Deflate can only reference earlier bytes, so a short message compresses well only if
+ * its phrases are already in the dictionary. The trainer:
+ * - counts every run of one to eight words across the samples,
+ * - scores each phrase by the bytes it would save ({@code (occurrences - 1) * length}),
+ * - takes the best phrases that are not already contained in a chosen one, up to the size,
+ * - writes them with the best phrases last, closest to the data being compressed.
+ * <p>
+ * Samples can be exported from {@code spring_ai_chat_memory.content}, e.g. with the H2
+ * console's {@code CSVWRITE}; the default dictionary is trained on
+ * {@code src/perf/resources/chat-memory-samples.txt} and {@code booking-terms.txt}.
+ * <pre>
+ * ./mvnw -Pperf test-compile exec:exec@dictionary \
+ *     -Ddictionary.args="--out=src/main/resources/chat-memory.dict src/perf/resources/chat-memory-samples.txt"
+ * </pre>
+ */
+public final class MessageDictionaryTrainer {
+
+    private static final int MAX_WORDS = 8;
+    private static final int MIN_PHRASE_LENGTH = 4;
+
+    private MessageDictionaryTrainer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path out = Path.of("chat-memory.dict");
+        int size = 16 * 1024;
+        List<String> samples = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--out=")) {
+                out = Path.of(arg.substring(6));
+            } else if (arg.startsWith("--size=")) {
+                size = Integer.parseInt(arg.substring(7));
+            } else {
+                Files.readAllLines(Path.of(arg), StandardCharsets.UTF_8).stream()
+                        .filter(line -> !line.isBlank())
+                        .forEach(samples::add);
+            }
+        }
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("No sample files given");
+        }
+        byte[] dictionary = train(samples, size);
+        Files.write(out, dictionary);
+        System.out.printf("Wrote a %d byte dictionary trained on %d messages to %s%n",
+                dictionary.length, samples.size(), out);
+    }
+
+    public static byte[] train(List<String> samples, int size) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String sample : samples) {
+            String[] words = sample.strip().split(" +");
+            for (int start = 0; start < words.length; start++) {
+                var phrase = new StringBuilder();
+                for (int end = start; end < Math.min(words.length, start + MAX_WORDS); end++) {
+                    phrase.append(words[end]).append(' ');
+                    if (phrase.length() >= MIN_PHRASE_LENGTH) {
+                        counts.merge(phrase.toString(), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(counts.entrySet());
+        ranked.removeIf(entry -> entry.getValue() < 2);
+        ranked.sort(Comparator.comparingLong((Map.Entry<String, Integer> entry) -> score(entry)).reversed()
+                .thenComparing(Map.Entry::getKey));
+
+        List<String> chosen = new ArrayList<>();
+        int used = 0;
+        for (Map.Entry<String, Integer> entry : ranked) {
+            String phrase = entry.getKey();
+            if (used + length(phrase) > size) {
+                continue;
+            }
+            if (chosen.stream().anyMatch(picked -> picked.contains(phrase))) {
+                continue;
+            }
+            // A longer phrase supersedes the shorter ones it contains.
+            chosen.removeIf(phrase::contains);
+            chosen.add(phrase);
+            used = chosen.stream().mapToInt(MessageDictionaryTrainer::length).sum();
+        }
+
+        var dictionary = new StringBuilder();
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            dictionary.append(chosen.get(i));
+        }
+        return dictionary.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long score(Map.Entry<String, Integer> entry) {
+        return (long) (entry.getValue() - 1) * length(entry.getKey());
+    }
+
+    private static int length(String phrase) {
+        return phrase.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
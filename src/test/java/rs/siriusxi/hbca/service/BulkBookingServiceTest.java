@@ -0,0 +1,107 @@
+package rs.siriusxi.hbca.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import rs.siriusxi.hbca.service.BulkBookingService.BookingCriteria;
+import rs.siriusxi.hbca.service.BulkBookingService.ItemResult;
+import rs.siriusxi.hbca.service.BulkBookingService.Outcome;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk cancellation in chunks of two: every chunk boundary is crossed, only confirmed
+ * bookings change, and each changed booking's version goes up by one.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.datasource.url=jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1",
+                "hbca.bookings.cache.enabled=false", "hbca.bookings.bulk.chunk-size=2"})
+class BulkBookingServiceTest {
+
+    private static final LocalDate CHECK_IN = LocalDate.now().plusDays(60);
+
+    @Autowired
+    BulkBookingService bulkBookingService;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    private final String run = Long.toString(System.nanoTime(), 36);
+
+    @BeforeEach
+    void seedCustomer() {
+        jdbc.update("INSERT INTO customers (first_name, last_name) VALUES (?, 'Bulk')", run);
+    }
+
+    @Test
+    void cancelsOnlyConfirmedBookingsByNumber() {
+        seed(0, "CONFIRMED");
+        seed(1, "CONFIRMED");
+        seed(2, "COMPLETED");
+        seed(3, "CANCELLED");
+        seed(4, "CONFIRMED");
+
+        var result = bulkBookingService.cancelBookings(List.of(
+                number(0), number(1), number(2), number(3), number(4), number(9), " " + number(0) + " "));
+
+        Map<String, Outcome> outcomes = result.items().stream()
+                .collect(Collectors.toMap(ItemResult::bookingNumber, ItemResult::outcome));
+        assertEquals(Map.of(number(0), Outcome.UPDATED, number(1), Outcome.UPDATED, number(2), Outcome.REJECTED,
+                number(3), Outcome.UNCHANGED, number(4), Outcome.UPDATED, number(9), Outcome.NOT_FOUND), outcomes);
+
+        assertState(0, "CANCELLED", 1);
+        assertState(1, "CANCELLED", 1);
+        assertState(2, "COMPLETED", 0);
+        assertState(3, "CANCELLED", 0);
+        assertState(4, "CANCELLED", 1);
+    }
+
+    @Test
+    void cancelsEveryChunkMatchingCriteria() {
+        for (int booking = 0; booking < 5; booking++) {
+            seed(booking, "CONFIRMED");
+        }
+        seed(5, "COMPLETED");
+
+        var result = bulkBookingService.cancelBookings(new BookingCriteria(hotel(), CHECK_IN, CHECK_IN.plusDays(1)));
+
+        assertEquals(5, result.count(Outcome.UPDATED));
+        assertEquals(5, result.items().size());
+        for (int booking = 0; booking < 5; booking++) {
+            assertState(booking, "CANCELLED", 1);
+        }
+        assertState(5, "COMPLETED", 0);
+    }
+
+    private void seed(int booking, String status) {
+        jdbc.update("""
+                        INSERT INTO bookings (hotel_name, booking_number, check_in_date, check_out_date, customer_id,
+                                              room_type, number_of_guests, booking_status)
+                        VALUES (?, ?, ?, ?, (SELECT id FROM customers WHERE first_name = ? AND last_name = 'Bulk'),
+                                'DOUBLE', 2, ?)""",
+                hotel(), number(booking), Date.valueOf(CHECK_IN), Date.valueOf(CHECK_IN.plusDays(3)), run, status);
+    }
+
+    private void assertState(int booking, String status, long version) {
+        var row = jdbc.queryForMap("SELECT booking_status, version FROM bookings WHERE booking_number = ?",
+                number(booking));
+        assertEquals(status, row.get("BOOKING_STATUS").toString(), number(booking));
+        assertEquals(version, ((Number) row.get("VERSION")).longValue(), number(booking));
+    }
+
+    private String hotel() {
+        return "Bulk-" + run;
+    }
+
+    private String number(int booking) {
+        return "K-%s-%d".formatted(run, booking);
+    }
+}
@@ -0,0 +1,102 @@
+package rs.siriusxi.hbca.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import rs.siriusxi.hbca.domain.RoomType;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Parallel room type changes on a few hot bookings: every successful change must
+ * increment the booking's version exactly once, so a lost update or a double apply
+ * shows up as a version that disagrees with the number of successful changes.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.datasource.url=jdbc:h2:mem:contention;DB_CLOSE_DELAY=-1",
+                "hbca.bookings.cache.enabled=false", "hbca.bookings.mutations.max-attempts=10"})
+class HotelBookingServiceConcurrencyTest {
+
+    private static final int BOOKINGS = 3;
+    private static final int THREADS = 32;
+    private static final int CHANGES_PER_THREAD = 20;
+
+    @Autowired
+    HotelBookingService bookingService;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    private final String run = Long.toString(System.nanoTime(), 36);
+
+    @BeforeEach
+    void seedBookings() {
+        LocalDate checkIn = LocalDate.now().plusDays(30);
+        for (int booking = 0; booking < BOOKINGS; booking++) {
+            jdbc.update("INSERT INTO customers (first_name, last_name) VALUES (?, ?)", firstName(booking), "Contention");
+            jdbc.update("""
+                            INSERT INTO bookings (hotel_name, booking_number, check_in_date, check_out_date, customer_id,
+                                                  room_type, number_of_guests, booking_status)
+                            VALUES ('Hilton', ?, ?, ?,
+                                    (SELECT id FROM customers WHERE first_name = ? AND last_name = 'Contention'),
+                                    'SINGLE', 1, 'CONFIRMED')""",
+                    bookingNumber(booking), Date.valueOf(checkIn), Date.valueOf(checkIn.plusDays(2)), firstName(booking));
+        }
+    }
+
+    @Test
+    void versionEqualsSuccessfulChanges() {
+        var succeeded = new AtomicLongArray(BOOKINGS);
+        Queue<RuntimeException> failures = new ConcurrentLinkedQueue<>();
+        RoomType[] roomTypes = RoomType.values();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < THREADS; t++) {
+                executor.submit(() -> {
+                    var random = ThreadLocalRandom.current();
+                    for (int i = 0; i < CHANGES_PER_THREAD; i++) {
+                        int booking = random.nextInt(BOOKINGS);
+                        try {
+                            bookingService.changeBookingRoomType(bookingNumber(booking), firstName(booking),
+                                    "Contention", roomTypes[random.nextInt(roomTypes.length)].name());
+                            succeeded.incrementAndGet(booking);
+                        } catch (OptimisticLockingFailureException _) {
+                            // Conflicts left after all retries are allowed; they must not bump the version.
+                        } catch (RuntimeException e) {
+                            failures.add(e);
+                        }
+                    }
+                });
+            }
+        }
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures: " + failures);
+        long total = 0;
+        for (int booking = 0; booking < BOOKINGS; booking++) {
+            Long version = jdbc.queryForObject("SELECT version FROM bookings WHERE booking_number = ?",
+                    Long.class, bookingNumber(booking));
+            assertEquals(succeeded.get(booking), version, "version of " + bookingNumber(booking));
+            total += succeeded.get(booking);
+        }
+        assertTrue(total > 0);
+    }
+
+    private String bookingNumber(int booking) {
+        return "C-%s-%d".formatted(run, booking);
+    }
+
+    private String firstName(int booking) {
+        return "Hot%s%d".formatted(run, booking);
+    }
+}
@@ -0,0 +1,72 @@
+package rs.siriusxi.hbca.service.ai.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rs.siriusxi.hbca.config.EmbeddingCacheProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void sharesEntriesAcrossNormalizedQuestions() {
+        var cache = cache(Duration.ofHours(1));
+
+        cache.get("What is the cancellation policy?", 3, loader(3));
+        cache.get("  what is the   CANCELLATION policy ", 3, loader(3));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void reembedsEntriesOfOtherDimensions() {
+        var cache = cache(Duration.ofHours(1));
+        cache.get("hello", 3, loader(3));
+
+        float[] embedding = cache.get("hello", 4, loader(4));
+
+        assertEquals(4, embedding.length);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void persistedEntriesKeepTheirExpiry() throws Exception {
+        var saved = cache(Duration.ofMillis(500));
+        saved.get("hello", 3, loader(3));
+        saved.destroy();
+
+        var restored = cache(Duration.ofMillis(500));
+        restored.afterPropertiesSet();
+        restored.get("hello", 3, loader(3));
+        assertEquals(1, loads.get());
+
+        Thread.sleep(600);
+        var expired = cache(Duration.ofMillis(500));
+        expired.afterPropertiesSet();
+        expired.get("hello", 3, loader(3));
+        assertEquals(2, loads.get());
+    }
+
+    private EmbeddingCache cache(Duration expireAfter) {
+        var properties = new EmbeddingCacheProperties(true, 100, expireAfter, tempDir.resolve("embeddings.bin"));
+        return new EmbeddingCache(properties, new SimpleMeterRegistry());
+    }
+
+    private Function<String, float[]> loader(int dimensions) {
+        return _ -> {
+            loads.incrementAndGet();
+            return new float[dimensions];
+        };
+    }
+}
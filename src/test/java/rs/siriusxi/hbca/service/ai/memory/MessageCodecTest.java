@@ -0,0 +1,80 @@
+package rs.siriusxi.hbca.service.ai.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import rs.siriusxi.hbca.config.ChatMemoryProperties;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCodecTest {
+
+    private static final byte[] DICTIONARY = """
+            Your booking number is confirmed for check-in on and check-out on. \
+            The cancellation fee is charged when a booking is cancelled less than 24 hours before check-in.\
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private static final String MESSAGE = """
+            Your booking number 104 is confirmed for check-in on 2026-11-02 and check-out on 2026-11-05. \
+            The cancellation fee is charged when a booking is cancelled less than 24 hours before check-in.\
+            """;
+
+    @Test
+    void roundTripsCompressedMessages() {
+        var codec = codec(true, DICTIONARY, 16);
+
+        MessageCodec.Encoded encoded = codec.encode(MESSAGE);
+
+        assertEquals("", encoded.content());
+        assertNotNull(encoded.compressed());
+        assertTrue(encoded.compressed().length < MESSAGE.getBytes(StandardCharsets.UTF_8).length);
+        assertEquals(MESSAGE, codec.decode(encoded.content(), encoded.compressed()));
+    }
+
+    @Test
+    void rejectsMessagesCompressedWithAnotherDictionary() {
+        MessageCodec.Encoded encoded = codec(true, DICTIONARY, 16).encode(MESSAGE);
+        byte[] otherDictionary = "Breakfast is served from seven to ten.".getBytes(StandardCharsets.UTF_8);
+
+        var otherCodec = codec(true, otherDictionary, 16);
+        var noDictionaryCodec = codec(true, null, 16);
+
+        var mismatch = assertThrows(IllegalStateException.class,
+                () -> otherCodec.decode(encoded.content(), encoded.compressed()));
+        assertTrue(mismatch.getMessage().contains("unknown dictionary"));
+        assertThrows(IllegalStateException.class,
+                () -> noDictionaryCodec.decode(encoded.content(), encoded.compressed()));
+    }
+
+    @Test
+    void storesShortAndIncompressibleMessagesAsText() {
+        var codec = codec(true, null, 128);
+
+        MessageCodec.Encoded belowMinSize = codec.encode("Thank you!");
+        MessageCodec.Encoded incompressible = codec(true, null, 1).encode("ok");
+
+        assertEquals("Thank you!", belowMinSize.content());
+        assertNull(belowMinSize.compressed());
+        assertEquals("ok", incompressible.content());
+        assertNull(incompressible.compressed());
+        assertEquals("Thank you!", codec.decode(belowMinSize.content(), null));
+    }
+
+    @Test
+    void decodesCompressedMessagesWithCompressionDisabled() {
+        MessageCodec.Encoded encoded = codec(true, DICTIONARY, 16).encode(MESSAGE);
+        var disabled = codec(false, DICTIONARY, 16);
+
+        assertNull(disabled.encode(MESSAGE).compressed());
+        assertEquals(MESSAGE, disabled.decode(encoded.content(), encoded.compressed()));
+    }
+
+    private static MessageCodec codec(boolean enabled, byte @Nullable [] dictionary, int minSize) {
+        var properties = new ChatMemoryProperties.Compression(enabled,
+                dictionary == null ? null : new ByteArrayResource(dictionary), minSize, 6);
+        return new MessageCodec(properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,144 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import rs.siriusxi.hbca.config.IngestionProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void groupsChunksUnderTokenBudget() {
+        var pipeline = pipeline(new StubEmbeddingModel(_ -> false), 40, 1);
+
+        var batches = pipeline.batches(chunks(20));
+
+        var tokens = new JTokkitTokenCountEstimator();
+        assertTrue(batches.size() > 1);
+        assertEquals(20, batches.stream().mapToInt(List::size).sum());
+        for (List<Document> batch : batches) {
+            int batchTokens = batch.stream().mapToInt(chunk -> tokens.estimate(chunk.getText())).sum();
+            assertTrue(batch.size() == 1 || batchTokens <= 40, "batch of %d tokens".formatted(batchTokens));
+        }
+    }
+
+    @Test
+    void retriesTransientFailures() {
+        var failures = new AtomicInteger(2);
+        var model = new StubEmbeddingModel(_ -> failures.getAndDecrement() > 0);
+        var pipeline = pipeline(model, 10_000, 1);
+        Map<String, float[]> stored = new ConcurrentHashMap<>();
+
+        try (var checkpoint = new EmbeddingCheckpoint(tempDir.resolve("checkpoint"))) {
+            pipeline.run(chunks(5), checkpoint, sink(stored));
+        }
+
+        assertEquals(5, stored.size());
+        assertEquals(3, model.calls.get());
+    }
+
+    @Test
+    void resumesFromCheckpointAfterFailedRun() {
+        var chunks = chunks(12);
+        var brokenModel = new StubEmbeddingModel(texts -> texts.contains("chunk 11"));
+        Map<String, float[]> firstRun = new ConcurrentHashMap<>();
+
+        try (var checkpoint = new EmbeddingCheckpoint(tempDir.resolve("checkpoint"))) {
+            assertThrows(IllegalStateException.class,
+                    () -> pipeline(brokenModel, 40, 1).run(chunks, checkpoint, sink(firstRun)));
+        }
+        assertFalse(firstRun.isEmpty());
+
+        var healthyModel = new StubEmbeddingModel(_ -> false);
+        Map<String, float[]> secondRun = new ConcurrentHashMap<>();
+        try (var checkpoint = new EmbeddingCheckpoint(tempDir.resolve("checkpoint"))) {
+            pipeline(healthyModel, 40, 1).run(chunks, checkpoint, sink(secondRun));
+        }
+
+        assertEquals(12, secondRun.size());
+        assertEquals(1, healthyModel.calls.get(), "only the failed batch is embedded again");
+    }
+
+    private EmbeddingPipeline pipeline(EmbeddingModel model, int tokenBudget, int concurrency) {
+        var batching = new IngestionProperties.Batching(tokenBudget, 64, concurrency, 3, Duration.ofMillis(1));
+        return new EmbeddingPipeline(model, batching, new SimpleMeterRegistry());
+    }
+
+    private static List<Document> chunks(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Document("id-" + i, "booking policy chunk " + i + " about cancellations and refunds",
+                        Map.of()))
+                .toList();
+    }
+
+    private static BiConsumer<List<Document>, List<float[]>> sink(Map<String, float[]> stored) {
+        return (documents, embeddings) -> {
+            for (int i = 0; i < documents.size(); i++) {
+                stored.put(documents.get(i).getId(), embeddings.get(i));
+            }
+        };
+    }
+
+    /**
+     * Deterministic local embedding model; fails any call whose texts match the predicate
+     */
+    static final class StubEmbeddingModel implements EmbeddingModel {
+
+        final AtomicInteger calls = new AtomicInteger();
+        private final Predicate<String> failWhen;
+
+        StubEmbeddingModel(Predicate<String> failWhen) {
+            this.failWhen = failWhen;
+        }
+
+        @Override
+        public List<float[]> embed(List<String> texts) {
+            calls.incrementAndGet();
+            if (failWhen.test(String.join("\n", texts))) {
+                throw new IllegalStateException("stub embedding failure");
+            }
+            return texts.stream().map(StubEmbeddingModel::vector).toList();
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            List<float[]> vectors = embed(request.getInstructions());
+            for (int i = 0; i < vectors.size(); i++) {
+                embeddings.add(new Embedding(vectors.get(i), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vector(document.getText());
+        }
+
+        private static float[] vector(String text) {
+            return new float[]{text.length(), text.hashCode() % 97, 1f};
+        }
+    }
+}
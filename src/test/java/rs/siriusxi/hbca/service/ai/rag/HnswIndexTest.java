@@ -0,0 +1,75 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+    private static final int CORPUS = 2_000;
+    private static final int QUERIES = 100;
+    private static final int K = 10;
+
+    @Test
+    void recallMatchesBruteForce() {
+        var random = new SplittableRandom(42);
+        var arena = new VectorArena(DIMENSIONS, CORPUS);
+        var index = new HnswIndex(arena, 16, 200);
+        for (int i = 0; i < CORPUS; i++) {
+            index.insert(arena.add(randomVector(random)));
+        }
+
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = VectorMath.normalize(randomVector(random));
+            Set<Integer> exact = new HashSet<>(bruteForce(arena, query));
+            for (HnswIndex.Scored hit : index.search(query, K, 64)) {
+                if (exact.contains(hit.node())) {
+                    found++;
+                }
+            }
+        }
+        double recall = (double) found / (QUERIES * K);
+        assertTrue(recall >= 0.95, "recall@%d was %.3f".formatted(K, recall));
+    }
+
+    @Test
+    void searchSkipsDeletedNodes() {
+        var random = new SplittableRandom(7);
+        var arena = new VectorArena(DIMENSIONS, 200);
+        var index = new HnswIndex(arena, 8, 64);
+        for (int i = 0; i < 200; i++) {
+            index.insert(arena.add(randomVector(random)));
+        }
+        float[] query = arena.vector(17);
+
+        index.markDeleted(17);
+
+        List<HnswIndex.Scored> hits = index.search(query, K, 32);
+        assertEquals(K, hits.size());
+        assertTrue(hits.stream().noneMatch(hit -> hit.node() == 17));
+    }
+
+    private static List<Integer> bruteForce(VectorArena arena, float[] query) {
+        return IntStream.range(0, arena.size()).boxed()
+                .sorted(Comparator.comparingDouble((Integer node) -> arena.similarity(node, query)).reversed())
+                .limit(K)
+                .toList();
+    }
+
+    private static float[] randomVector(SplittableRandom random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
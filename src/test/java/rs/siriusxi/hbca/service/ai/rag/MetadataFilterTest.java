@@ -0,0 +1,40 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataFilterTest {
+
+    private final FilterExpressionBuilder b = new FilterExpressionBuilder();
+    private final Map<String, Object> metadata = Map.of("source", "terms.md", "chunk", 3, "current", true);
+
+    @Test
+    void comparesNumbersByValue() {
+        assertTrue(matches(b.eq("chunk", 3L)));
+        assertTrue(matches(b.gte("chunk", 2.5)));
+        assertFalse(matches(b.lt("chunk", 3)));
+    }
+
+    @Test
+    void combinesExpressions() {
+        assertTrue(matches(b.and(b.eq("source", "terms.md"), b.in("chunk", 1, 3))));
+        assertTrue(matches(b.or(b.eq("source", "faq.md"), b.eq("current", true))));
+        assertFalse(matches(b.not(b.group(b.eq("source", "terms.md")))));
+        assertTrue(matches(b.nin("source", "faq.md", "rooms.md")));
+    }
+
+    @Test
+    void missingKeysAndMismatchedTypesDoNotMatch() {
+        assertFalse(matches(b.eq("language", "en")));
+        assertFalse(matches(b.lt("source", 5)));
+        assertTrue(matches(b.ne("language", "en")));
+    }
+
+    private boolean matches(FilterExpressionBuilder.Op op) {
+        return new MetadataFilter(op.build()).test(metadata);
+    }
+}
@@ -0,0 +1,63 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static rs.siriusxi.hbca.service.ai.rag.QueryIntentClassifier.Intent.*;
+
+class QueryIntentClassifierTest {
+
+    private final QueryIntentClassifier classifier = new QueryIntentClassifier();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "What is the cancellation policy?",
+            "Can I change my booking after check-in?",
+            "Are there fees for upgrading booking 102?",
+            "Is breakfast included in my stay?"})
+    void termsQuestionsAreInformational(String message) {
+        assertEquals(INFORMATIONAL, classifier.classify(message));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "Please cancel booking 101 for Jack Bauer",
+            "I want to change my room type to a suite",
+            "Upgrade booking 102 to a family room",
+            "Cancellation of booking 103 please"})
+    void changesRetrieveTheTerms(String message) {
+        var intent = classifier.classify(message);
+
+        assertEquals(BOOKING_CHANGE, intent);
+        assertTrue(intent.needsTerms());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "Show me the details of booking 101",
+            "Find booking 104 for John Doe",
+            "101"})
+    void lookupsSkipTheTerms(String message) {
+        var intent = classifier.classify(message);
+
+        assertEquals(BOOKING_LOOKUP, intent);
+        assertFalse(intent.needsTerms());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Hi!", "hello there", "Thanks!", "ok", ""})
+    void smallTalkSkipsTheTerms(String message) {
+        var intent = classifier.classify(message);
+
+        assertEquals(SMALL_TALK, intent);
+        assertFalse(intent.needsTerms());
+    }
+
+    @Test
+    void countsQuestions() {
+        assertEquals(1, classifier.questions("What is the cancellation policy?"));
+        assertEquals(2, classifier.questions("Can I bring pets and is breakfast included?"));
+    }
+}
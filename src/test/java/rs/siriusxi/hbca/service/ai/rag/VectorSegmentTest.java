@@ -0,0 +1,113 @@
+package rs.siriusxi.hbca.service.ai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorSegmentTest {
+
+    private static final int DIMENSIONS = 16;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripsRecordsAndEmbeddings() {
+        var entries = entries(50);
+        Path file = tempDir.resolve("store.bin");
+
+        VectorSegment.write(file, entries);
+
+        try (var segment = VectorSegment.open(file)) {
+            assertEquals(50, segment.count());
+            assertEquals(DIMENSIONS, segment.dimensions());
+            assertNull(segment.graph());
+            var arena = VectorArena.mapped(segment.embeddings(), segment.count(), segment.dimensions());
+            for (int i = 0; i < entries.size(); i++) {
+                StoredEmbedding expected = entries.get(i);
+                assertEquals(expected.id(), segment.id(i));
+                assertEquals(expected.text(), segment.text(i));
+                assertEquals(expected.metadata(), segment.metadata(i));
+                assertArrayEquals(VectorMath.normalize(expected.embedding().clone()), arena.vector(i), 1e-6f);
+            }
+        }
+    }
+
+    @Test
+    void roundTripsGraphAndRestoredIndexSearchesTheSame() {
+        var entries = entries(300);
+        var arena = new VectorArena(DIMENSIONS, entries.size());
+        var index = new HnswIndex(arena, 4, 32);
+        for (StoredEmbedding entry : entries) {
+            index.insert(arena.add(entry.embedding()));
+        }
+        HnswIndex.Graph graph = index.graph();
+        Path file = tempDir.resolve("store.bin");
+
+        VectorSegment.write(file, entries, graph);
+
+        try (var segment = VectorSegment.open(file)) {
+            HnswIndex.Graph loaded = segment.graph();
+            assertNotNull(loaded);
+            assertEquals(graph.m(), loaded.m());
+            assertEquals(graph.entryPoint(), loaded.entryPoint());
+            assertEquals(graph.topLayer(), loaded.topLayer());
+            assertArrayEquals(graph.links(), loaded.links());
+
+            var mapped = VectorArena.mapped(segment.embeddings(), segment.count(), segment.dimensions());
+            var restored = HnswIndex.restore(mapped, 32, loaded);
+            var random = new SplittableRandom(7);
+            for (int q = 0; q < 20; q++) {
+                float[] query = VectorMath.normalize(randomVector(random));
+                assertEquals(nodes(index.search(query, 5, 16)), nodes(restored.search(query, 5, 16)));
+            }
+        }
+    }
+
+    @Test
+    void rejectsGraphOfDifferentSize() {
+        var entries = entries(3);
+        var arena = new VectorArena(DIMENSIONS, 2);
+        var index = new HnswIndex(arena, 4, 32);
+        index.insert(arena.add(entries.getFirst().embedding()));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> VectorSegment.write(tempDir.resolve("store.bin"), entries, index.graph()));
+    }
+
+    private static List<StoredEmbedding> entries(int count) {
+        var random = new SplittableRandom(42);
+        List<StoredEmbedding> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = Map.of(
+                    "source", "terms-" + i + ".md",
+                    "chunk", i,
+                    "offset", (long) i * 1000,
+                    "score", i / 3.0,
+                    "weight", i / 7f,
+                    "current", i % 2 == 0);
+            entries.add(new StoredEmbedding("doc-" + i, "Text of chunk " + i + " – résumé", metadata,
+                    randomVector(random)));
+        }
+        return entries;
+    }
+
+    private static float[] randomVector(SplittableRandom random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<Integer> nodes(List<HnswIndex.Scored> hits) {
+        return hits.stream().map(HnswIndex.Scored::node).toList();
+    }
+}